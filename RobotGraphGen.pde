@@ -1,8 +1,16 @@
+// The roadmap classes come from the robotgraphgen core and render jars,
+// which `mvn package` copies into this sketch's code folder.
+import robotgraphgen.Graph;
+import robotgraphgen.HaltonSequence;
+import robotgraphgen.Map;
+import robotgraphgen.VanDerCorput;
+import robotgraphgen.render.RoadmapView;
+
 HaltonSequence hs;
 VanDerCorput vdc;
 Map map;
 Graph graph;
-PImage background;
+RoadmapView view;
 public static final int K = 3;
 public static final double R = 80;
 
@@ -13,10 +21,7 @@ void setup () {
     vdc = new VanDerCorput(2);
     map = new Map(width, height);
     graph = new Graph(map, K, R);
-    map.render(this.g);
-    graph.render(this.g);
-    save("background.png");
-    background = loadImage("background.png");
+    view = new RoadmapView(this, map, graph.compact());
 }
 
 void mouseMoved() {
@@ -24,7 +29,7 @@ void mouseMoved() {
 }
 
 void draw() {
-    image(background, 0, 0);
+    view.draw(this.g);
     stroke(255, 0, 0);
     strokeWeight(2);
     noFill();
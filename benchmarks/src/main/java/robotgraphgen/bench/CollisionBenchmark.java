@@ -0,0 +1,82 @@
+package robotgraphgen.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import robotgraphgen.Graph;
+import robotgraphgen.GraphOptions;
+import robotgraphgen.Map;
+
+/**
+ * Measures point and edge collision checks against maps with a varying
+ * number of obstacles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CollisionBenchmark {
+    private static final int NUM_QUERIES = 4096;
+
+    @Param({ "3", "100", "1000", "10000" })
+    public int obstacles;
+
+    @Param({ "100" })
+    public double r;
+
+    @Param({ "SAMPLED", "EXACT", "CLEARANCE" })
+    public GraphOptions.EdgeCheck edgeCheck;
+
+    private Map map;
+    private Graph graph;
+    private double[][] starts;
+    private double[][] ends;
+    private int next;
+
+    @Setup
+    public void setup() {
+        this.map = MapBenchmark.randomMap(this.obstacles, new Random(42));
+        if (this.edgeCheck == GraphOptions.EdgeCheck.CLEARANCE) {
+            this.map.computeClearance(10);
+        }
+        // A graph with no vertices is enough to call edgeIsValid on.
+        this.graph = new Graph(this.map, 0, this.r, new GraphOptions()
+                .numVertices(0)
+                .edgeCheck(this.edgeCheck));
+
+        Random random = new Random(7);
+        this.starts = new double[NUM_QUERIES][];
+        this.ends = new double[NUM_QUERIES][];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            double x = random.nextDouble() * MapBenchmark.SIZE;
+            double y = random.nextDouble() * MapBenchmark.SIZE;
+            double angle = random.nextDouble() * 2 * Math.PI;
+            this.starts[i] = new double[] { x, y };
+            this.ends[i] = new double[] {
+                    x + Math.cos(angle) * this.r,
+                    y + Math.sin(angle) * this.r };
+        }
+    }
+
+    @Benchmark
+    public boolean inObstacle() {
+        double[] p = this.starts[this.next++ & (NUM_QUERIES - 1)];
+        return this.map.inObstacle(p[0], p[1]);
+    }
+
+    @Benchmark
+    public boolean inObstacleLinear() {
+        double[] p = this.starts[this.next++ & (NUM_QUERIES - 1)];
+        return this.map.inObstacleLinear(p[0], p[1]);
+    }
+
+    @Benchmark
+    public boolean edgeIsValid() {
+        int i = this.next++ & (NUM_QUERIES - 1);
+        return this.graph.edgeIsValid(this.starts[i], this.ends[i], this.map);
+    }
+}
@@ -0,0 +1,59 @@
+package robotgraphgen.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import robotgraphgen.Graph;
+import robotgraphgen.GraphOptions;
+import robotgraphgen.Map;
+
+/**
+ * Measures placing vertices on maps with more and more of their area
+ * blocked. With no edges to connect, the build is almost all sampling.
+ * Uniform sampling slows as the map fills, while free space sampling should
+ * stay flat.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FreeSpaceBenchmark {
+    @Param({ "10000" })
+    public int vertices;
+
+    @Param({ "0.5", "0.9", "0.99" })
+    public double blocked;
+
+    @Param({ "UNIFORM", "FREE_SPACE", "BRIDGE" })
+    public GraphOptions.Sampling sampling;
+
+    private Map map;
+    private GraphOptions options;
+
+    @Setup
+    public void setup() {
+        // Bars across the map, each leaving a gap of the unblocked fraction.
+        double size = MapBenchmark.SIZE;
+        double bar = size / 20;
+        List<double[]> obstacles = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            obstacles.add(new double[] { 0, i * bar, size, bar * this.blocked });
+        }
+        this.map = new Map(size, size, obstacles);
+        this.options = new GraphOptions()
+                .numVertices(this.vertices)
+                .reportUnderConnected(false)
+                .spatialIndex(true)
+                .sampling(this.sampling);
+    }
+
+    @Benchmark
+    public Graph sample() {
+        return new Graph(this.map, 0, 0, this.options);
+    }
+}
@@ -0,0 +1,68 @@
+package robotgraphgen.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import robotgraphgen.Graph;
+import robotgraphgen.GraphOptions;
+import robotgraphgen.Map;
+
+/**
+ * Measures full roadmap construction, from sampling through connecting
+ * every vertex.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphBenchmark {
+    /**
+     * Combinations of construction options worth comparing.
+     */
+    public enum Mode {
+        BRUTE_FORCE,
+        SPATIAL_INDEX,
+        PARALLEL,
+        LAZY_EDGES
+    }
+
+    @Param({ "1000", "10000" })
+    public int vertices;
+
+    @Param({ "5", "15" })
+    public int k;
+
+    @Param({ "150", "400" })
+    public double r;
+
+    @Param({ "3", "1000" })
+    public int obstacles;
+
+    @Param({ "BRUTE_FORCE", "SPATIAL_INDEX", "PARALLEL", "LAZY_EDGES" })
+    public Mode mode;
+
+    private Map map;
+    private GraphOptions options;
+
+    @Setup
+    public void setup() {
+        this.map = MapBenchmark.randomMap(this.obstacles, new Random(42));
+        this.options = new GraphOptions()
+                .numVertices(this.vertices)
+                .reportUnderConnected(false)
+                .spatialIndex(this.mode != Mode.BRUTE_FORCE)
+                .lazyEdges(this.mode == Mode.LAZY_EDGES);
+        if (this.mode == Mode.PARALLEL) {
+            this.options.parallelism(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @Benchmark
+    public Graph build() {
+        return new Graph(this.map, this.k, this.r, this.options);
+    }
+}
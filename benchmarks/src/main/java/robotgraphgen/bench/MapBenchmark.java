@@ -0,0 +1,77 @@
+package robotgraphgen.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import robotgraphgen.Map;
+
+/**
+ * Compares the broad-phase grid in Map.inObstacle against a linear scan over
+ * every obstacle.
+ * 
+ * Usage: java -cp benchmarks.jar robotgraphgen.bench.MapBenchmark
+ * [obstacles] [queries]
+ */
+public class MapBenchmark {
+    public static final double SIZE = 10000.0;
+
+    public static void main(String[] args) {
+        int numObstacles = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int numQueries = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+        Map map = randomMap(numObstacles, new Random(42));
+        double[][] queries = new double[numQueries][];
+        Random random = new Random(7);
+        for (int i = 0; i < numQueries; i++) {
+            queries[i] = new double[] { random.nextDouble() * SIZE, random.nextDouble() * SIZE };
+        }
+
+        // Warm up both paths so the timings measure compiled code.
+        for (int i = 0; i < 3; i++) {
+            time(map, queries, false);
+            time(map, queries, true);
+        }
+        long linear = time(map, queries, false);
+        long grid = time(map, queries, true);
+
+        System.out.printf("%d obstacles, %d queries%n", numObstacles, numQueries);
+        System.out.printf("linear scan: %.1f ns/query%n", (double) linear / numQueries);
+        System.out.printf("grid:        %.1f ns/query%n", (double) grid / numQueries);
+    }
+
+    /**
+     * @return a square map filled with small obstacles at random positions
+     */
+    public static Map randomMap(int numObstacles, Random random) {
+        List<double[]> rectangles = new ArrayList<>();
+        for (int i = 0; i < numObstacles; i++) {
+            double w = 5 + random.nextDouble() * 100;
+            double h = 5 + random.nextDouble() * 100;
+            rectangles.add(new double[] {
+                    random.nextDouble() * (SIZE - w),
+                    random.nextDouble() * (SIZE - h),
+                    w, h });
+        }
+        return new Map(SIZE, SIZE, rectangles);
+    }
+
+    /**
+     * @return the nanoseconds taken to check every query point
+     */
+    private static long time(Map map, double[][] queries, boolean useGrid) {
+        map.setUseGrid(useGrid);
+        int hits = 0;
+        long start = System.nanoTime();
+        for (double[] q : queries) {
+            if (map.inObstacle(q)) {
+                hits++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        // Print the hit count so the loop can't be optimized away, and so both
+        // paths can be seen to agree.
+        System.out.println((useGrid ? "grid" : "linear") + " hits: " + hits);
+        return elapsed;
+    }
+}
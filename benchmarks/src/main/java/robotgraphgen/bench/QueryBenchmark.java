@@ -0,0 +1,82 @@
+package robotgraphgen.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import robotgraphgen.Graph;
+import robotgraphgen.GraphOptions;
+import robotgraphgen.LandmarkOracle;
+import robotgraphgen.Map;
+import robotgraphgen.PathPlanner;
+import robotgraphgen.RoadmapPath;
+
+/**
+ * Measures start-to-goal path queries over a prebuilt roadmap, with goals a
+ * fixed distance from their starts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+    private static final int NUM_QUERIES = 4096;
+
+    @Param({ "10000", "100000" })
+    public int vertices;
+
+    @Param({ "300", "3000" })
+    public double distance;
+
+    @Param({ "false", "true" })
+    public boolean lazyEdges;
+
+    @Param({ "0", "16" })
+    public int landmarks;
+
+    private PathPlanner planner;
+    private double[] queries;
+
+    @Setup
+    public void setup() {
+        Map map = MapBenchmark.randomMap(1000, new Random(42));
+        // Keep about 30 vertices within r whatever the vertex count.
+        double r = MapBenchmark.SIZE * Math.sqrt(10.0 / this.vertices);
+        Graph graph = new Graph(map, 8, r, new GraphOptions()
+                .numVertices(this.vertices)
+                .reportUnderConnected(false)
+                .spatialIndex(true)
+                .edgeWeights(true)
+                .lazyEdges(this.lazyEdges));
+        this.planner = graph.planner(map, this.landmarks == 0
+                ? null
+                : LandmarkOracle.build(graph.lazyEdges(map), this.landmarks));
+
+        Random random = new Random(7);
+        this.queries = new double[4 * NUM_QUERIES];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            double x = random.nextDouble() * MapBenchmark.SIZE;
+            double y = random.nextDouble() * MapBenchmark.SIZE;
+            double angle = random.nextDouble() * 2 * Math.PI;
+            this.queries[4 * i] = x;
+            this.queries[4 * i + 1] = y;
+            this.queries[4 * i + 2] = x + Math.cos(angle) * this.distance;
+            this.queries[4 * i + 3] = y + Math.sin(angle) * this.distance;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public RoadmapPath plan(Cursor cursor) {
+        int i = 4 * (cursor.next++ & (NUM_QUERIES - 1));
+        return this.planner.plan(this.queries[i], this.queries[i + 1],
+                this.queries[i + 2], this.queries[i + 3]);
+    }
+}
@@ -0,0 +1,63 @@
+package robotgraphgen.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import robotgraphgen.HaltonSequence;
+import robotgraphgen.VanDerCorput;
+
+/**
+ * Measures the low discrepancy sequences used for vertex sampling and edge
+ * probing. AllocationTest in core checks that nextInto and valueAt don't
+ * allocate; -prof gc shows the same here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SamplingBenchmark {
+    @Param({ "2", "3", "5" })
+    public int base;
+
+    private VanDerCorput vdc;
+    private HaltonSequence halton;
+    private double[] out;
+    private long index;
+
+    @Setup
+    public void setup() {
+        this.vdc = new VanDerCorput(this.base);
+        this.halton = new HaltonSequence(2, 3);
+        this.out = new double[2];
+        this.index = 0;
+    }
+
+    @Benchmark
+    public double vanDerCorputNext() {
+        return this.vdc.next();
+    }
+
+    @Benchmark
+    public double vanDerCorputValueAt() {
+        return this.vdc.valueAt(this.index++);
+    }
+
+    @Benchmark
+    public double radicalInverse() {
+        return VanDerCorput.radicalInverse(this.index++, this.base);
+    }
+
+    @Benchmark
+    public double[] haltonNext() {
+        return this.halton.next();
+    }
+
+    @Benchmark
+    public double[] haltonNextInto() {
+        this.halton.nextInto(this.out);
+        return this.out;
+    }
+}
@@ -0,0 +1,253 @@
+package robotgraphgen.cli;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import robotgraphgen.CompactGraph;
+import robotgraphgen.Graph;
+import robotgraphgen.GraphOptions;
+import robotgraphgen.LandmarkOracle;
+import robotgraphgen.LazyEdges;
+import robotgraphgen.Map;
+import robotgraphgen.MapFile;
+import robotgraphgen.RoadmapFile;
+import robotgraphgen.TiledRoadmapBuilder;
+
+/**
+ * Builds a roadmap from a map file without any display, and writes it out
+ * either in the binary RoadmapFile format or as text: a line per vertex,
+ * "v x y", then a line per edge, "e a b".
+ */
+public class RoadmapCli {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: roadmap --map <file> [options]",
+            "  --map <file>      a text or binary obstacle file, or a PGM or PNG",
+            "                    occupancy image with dark pixels occupied",
+            "  --out <file>      write the roadmap here instead of stdout",
+            "  --binary          write the binary roadmap format (needs --out)",
+            "  --k <n>           maximum neighbors per vertex (default 3)",
+            "  --r <pixels>      maximum edge length (default 80)",
+            "  --vertices <n>    number of vertices to sample (default "
+                    + GraphOptions.DEFAULT_NUM_VERTICES + ")",
+            "  --threads <n>     worker threads for construction (default 1)",
+            "  --exact           check edges exactly instead of by sampling",
+            "  --clearance <px>  check edges by tracing a clearance field with this",
+            "                    cell size (exact)",
+            "  --densify <n>     draw up to n extra samples to join components",
+            "  --sampling <mode> uniform (default), free, gaussian or bridge; all but",
+            "                    uniform sample only free space",
+            "  --budget <n>      fail if the vertices need more than n samples",
+            "  --lazy            leave edges unchecked for collisions (needs --binary)",
+            "  --landmarks <n>   also write a landmark distance oracle to <out>.landmarks",
+            "                    (needs --binary)",
+            "  --tile <pixels>   build in tiles of this size, streaming them to disk",
+            "                    (needs --binary; at least 2r)",
+            "  --metrics         print build timings and counters to stderr",
+            "  --seed <n>        sample from a scrambled Halton sequence");
+
+    public static void main(String[] args) {
+        try {
+            System.exit(run(args));
+        } catch (IOException | IllegalStateException e) {
+            // Unreadable files, and maps too blocked to sample.
+            System.err.println("roadmap: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return the process exit status
+     */
+    static int run(String[] args) throws IOException {
+        Path mapPath = null;
+        Path outPath = null;
+        boolean binary = false;
+        int landmarks = 0;
+        double tileSize = 0;
+        double clearanceCell = 0;
+        int k = 3;
+        double r = 80;
+        GraphOptions options = new GraphOptions()
+                .reportUnderConnected(false)
+                .spatialIndex(true);
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--map":
+                        mapPath = Paths.get(value(args, ++i));
+                        break;
+                    case "--out":
+                        outPath = Paths.get(value(args, ++i));
+                        break;
+                    case "--binary":
+                        binary = true;
+                        break;
+                    case "--k":
+                        k = Integer.parseInt(value(args, ++i));
+                        break;
+                    case "--r":
+                        r = Double.parseDouble(value(args, ++i));
+                        break;
+                    case "--vertices":
+                        options.numVertices(Integer.parseInt(value(args, ++i)));
+                        break;
+                    case "--threads":
+                        options.parallelism(Integer.parseInt(value(args, ++i)));
+                        break;
+                    case "--exact":
+                        options.edgeCheck(GraphOptions.EdgeCheck.EXACT);
+                        break;
+                    case "--clearance":
+                        clearanceCell = Double.parseDouble(value(args, ++i));
+                        if (!(clearanceCell > 0)) {
+                            throw new IllegalArgumentException("--clearance must be positive");
+                        }
+                        options.edgeCheck(GraphOptions.EdgeCheck.CLEARANCE);
+                        break;
+                    case "--landmarks":
+                        landmarks = Integer.parseInt(value(args, ++i));
+                        break;
+                    case "--densify":
+                        options.densifyBudget(Integer.parseInt(value(args, ++i)));
+                        break;
+                    case "--sampling":
+                        options.sampling(sampling(value(args, ++i)));
+                        break;
+                    case "--budget":
+                        options.samplingBudget(Long.parseLong(value(args, ++i)));
+                        break;
+                    case "--lazy":
+                        options.lazyEdges(true);
+                        break;
+                    case "--tile":
+                        tileSize = Double.parseDouble(value(args, ++i));
+                        break;
+                    case "--metrics":
+                        options.metrics(true);
+                        break;
+                    case "--seed":
+                        options.scrambleSeed(Long.parseLong(value(args, ++i)));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+            if (mapPath == null) {
+                throw new IllegalArgumentException("--map is required");
+            }
+            if (binary && outPath == null) {
+                throw new IllegalArgumentException("--binary needs --out");
+            }
+            if (landmarks > 0 && !binary) {
+                throw new IllegalArgumentException("--landmarks needs --binary");
+            }
+            if (options.useLazyEdges() && !binary) {
+                // Only the binary format records that the edges are unchecked.
+                throw new IllegalArgumentException("--lazy needs --binary");
+            }
+            if (tileSize > 0 && !binary) {
+                throw new IllegalArgumentException("--tile needs --binary");
+            }
+            if (tileSize > 0 && tileSize < 2 * r) {
+                throw new IllegalArgumentException("--tile must be at least 2r");
+            }
+            if (tileSize > 0 && options.getDensifyBudget() > 0) {
+                throw new IllegalArgumentException("--tile can't be combined with --densify");
+            }
+            if (tileSize > 0 && options.getSampling() != GraphOptions.Sampling.UNIFORM) {
+                throw new IllegalArgumentException("--tile only supports uniform sampling");
+            }
+            if (tileSize > 0 && options.collectMetrics()) {
+                throw new IllegalArgumentException("--metrics isn't supported with --tile");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("roadmap: " + e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        Map map = MapFile.read(mapPath);
+        if (clearanceCell > 0) {
+            map.computeClearance(clearanceCell);
+        }
+        if (tileSize > 0) {
+            // The roadmap never exists in memory; read it back through a
+            // mapping if landmarks are wanted.
+            new TiledRoadmapBuilder(map, k, r, options, tileSize).write(outPath);
+            if (landmarks > 0) {
+                RoadmapFile written = RoadmapFile.load(outPath);
+                LandmarkOracle.build(new LazyEdges(written.getGraph(), map,
+                        written.getParameters()), landmarks)
+                        .write(outPath.resolveSibling(outPath.getFileName() + ".landmarks"));
+            }
+            return 0;
+        }
+        Graph built = new Graph(map, k, r, options);
+        CompactGraph graph = built.compact();
+        if (options.collectMetrics()) {
+            System.err.println(built.getBuildMetrics());
+        }
+
+        if (binary) {
+            RoadmapFile.write(outPath, graph, built.getBuildParameters());
+            if (landmarks > 0) {
+                LandmarkOracle.build(built.lazyEdges(map), landmarks)
+                        .write(outPath.resolveSibling(outPath.getFileName() + ".landmarks"));
+            }
+        } else if (outPath == null) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            write(graph, out);
+            out.flush();
+        } else {
+            try (Writer out = Files.newBufferedWriter(outPath, StandardCharsets.UTF_8)) {
+                write(graph, out);
+            }
+        }
+        return 0;
+    }
+
+    private static GraphOptions.Sampling sampling(String name) {
+        switch (name) {
+            case "uniform":
+                return GraphOptions.Sampling.UNIFORM;
+            case "free":
+                return GraphOptions.Sampling.FREE_SPACE;
+            case "gaussian":
+                return GraphOptions.Sampling.GAUSSIAN;
+            case "bridge":
+                return GraphOptions.Sampling.BRIDGE;
+            default:
+                throw new IllegalArgumentException("unknown sampling " + name);
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(args[i - 1] + " needs a value");
+        }
+        return args[i];
+    }
+
+    /**
+     * Writes each vertex, then each undirected edge once.
+     */
+    private static void write(CompactGraph graph, Writer out) throws IOException {
+        for (int v = 0; v < graph.numVertices(); v++) {
+            out.write("v " + graph.x(v) + " " + graph.y(v) + "\n");
+        }
+        for (int v = 0; v < graph.numVertices(); v++) {
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                if (v < graph.target(e)) {
+                    out.write("e " + v + " " + graph.target(e) + "\n");
+                }
+            }
+        }
+    }
+}
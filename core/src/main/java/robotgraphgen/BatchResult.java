@@ -0,0 +1,112 @@
+package robotgraphgen;
+
+import java.util.Arrays;
+
+/**
+ * The answers to a batch of path queries, in the order the queries were
+ * given, with how long each took.
+ *
+ * A query's latency runs from when a worker started on it until its path
+ * was ready. Queries answered together by one search from a shared start
+ * all include the time of that search.
+ */
+public class BatchResult {
+    private final RoadmapPath[] paths;
+    private final long[] latencies;
+    private final long wallNanos;
+    // Latencies in increasing order, for percentiles.
+    private final long[] sorted;
+
+    BatchResult(RoadmapPath[] paths, long[] latencies, long wallNanos) {
+        this.paths = paths;
+        this.latencies = latencies;
+        this.wallNanos = wallNanos;
+        this.sorted = latencies.clone();
+        Arrays.sort(this.sorted);
+    }
+
+    public int size() {
+        return this.paths.length;
+    }
+
+    /**
+     * @param i the index of a query in the batch
+     * @return the path answering it, or null if there is none
+     */
+    public RoadmapPath getPath(int i) {
+        return this.paths[i];
+    }
+
+    /**
+     * @param i the index of a query in the batch
+     * @return the nanoseconds spent answering it
+     */
+    public long latencyNanos(int i) {
+        return this.latencies[i];
+    }
+
+    /**
+     * @return the nanoseconds from the start of the batch until every query
+     *         was answered
+     */
+    public long getWallNanos() {
+        return this.wallNanos;
+    }
+
+    /**
+     * @return how many queries have a path
+     */
+    public int numFound() {
+        int found = 0;
+        for (RoadmapPath path : this.paths) {
+            if (path != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param p a percentile between 0 and 100
+     * @return the smallest latency at least p percent of queries finished
+     *         within, or 0 for an empty batch
+     */
+    public long percentileNanos(double p) {
+        if (p < 0 || p > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (this.sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p / 100 * this.sorted.length);
+        return this.sorted[Math.max(0, rank - 1)];
+    }
+
+    public long meanNanos() {
+        if (this.sorted.length == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (long latency : this.sorted) {
+            total += latency;
+        }
+        return total / this.sorted.length;
+    }
+
+    /**
+     * @return queries answered per second of wall time
+     */
+    public double throughput() {
+        return this.wallNanos == 0 ? 0.0 : this.paths.length / (this.wallNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "queries=%d found=%d wallMs=%.1f throughput=%.0f/s"
+                        + " latencyUs mean=%.1f p50=%.1f p95=%.1f p99=%.1f max=%.1f",
+                size(), numFound(), this.wallNanos / 1e6, throughput(),
+                meanNanos() / 1e3, percentileNanos(50) / 1e3, percentileNanos(95) / 1e3,
+                percentileNanos(99) / 1e3, percentileNanos(100) / 1e3);
+    }
+}
@@ -0,0 +1,146 @@
+package robotgraphgen;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot of where a Graph's construction spent its time and what it did,
+ * for tuning k, r and the edge check against real maps.
+ *
+ * Sampling, connecting and densifying are wall times. The neighbor search and
+ * edge check times are summed across the threads that did them, so in a
+ * parallel build they can exceed the connecting time.
+ */
+public class BuildMetrics {
+    private final int numVertices;
+    private final long numEdges;
+    private final long samplesDrawn;
+    private final long samplesRejected;
+    private final long sampleNanos;
+    private final long connectNanos;
+    private final long searchNanos;
+    private final long edgeCheckNanos;
+    private final long densifyNanos;
+    private final long edgeChecks;
+    private final long edgesRejected;
+    private final long probes;
+    private final int[] degreeHistogram;
+
+    BuildMetrics(int numVertices, long numEdges, long samplesDrawn, long samplesRejected,
+            BuildRecorder recorder, int[] degreeHistogram) {
+        this.numVertices = numVertices;
+        this.numEdges = numEdges;
+        this.samplesDrawn = samplesDrawn;
+        this.samplesRejected = samplesRejected;
+        this.sampleNanos = recorder.sampleNanos;
+        this.connectNanos = recorder.connectNanos;
+        this.searchNanos = recorder.searchNanos.sum();
+        this.edgeCheckNanos = recorder.edgeCheckNanos.sum();
+        this.densifyNanos = recorder.densifyNanos;
+        this.edgeChecks = recorder.edgeChecks.sum();
+        this.edgesRejected = recorder.edgesRejected.sum();
+        this.probes = recorder.probes.sum();
+        this.degreeHistogram = degreeHistogram;
+    }
+
+    public int getNumVertices() {
+        return numVertices;
+    }
+
+    /**
+     * @return the number of undirected edges in the finished graph
+     */
+    public long getNumEdges() {
+        return numEdges;
+    }
+
+    /**
+     * @return how many Halton points were drawn to find the vertices
+     */
+    public long getSamplesDrawn() {
+        return samplesDrawn;
+    }
+
+    /**
+     * @return how many drawn points were discarded, for landing in obstacles
+     *         or failing a bias test
+     */
+    public long getSamplesRejected() {
+        return samplesRejected;
+    }
+
+    public long getSampleNanos() {
+        return sampleNanos;
+    }
+
+    /**
+     * @return the wall time spent connecting vertices, which includes the
+     *         neighbor search and edge checks
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    public long getEdgeCheckNanos() {
+        return edgeCheckNanos;
+    }
+
+    public long getDensifyNanos() {
+        return densifyNanos;
+    }
+
+    /**
+     * @return how many candidate edges were checked for collisions; a
+     *         parallel build checks each vertex's candidates before knowing
+     *         how many it will use, so it checks more than a sequential one
+     */
+    public long getEdgeChecks() {
+        return edgeChecks;
+    }
+
+    /**
+     * @return how many checked edges were blocked by an obstacle
+     */
+    public long getEdgesRejected() {
+        return edgesRejected;
+    }
+
+    /**
+     * @return how many points along edges were tested against the map; for
+     *         exact checks, how many segments were intersected with it; and
+     *         for clearance checks, how many clearance lookups and exact
+     *         intersections were made
+     */
+    public long getProbes() {
+        return probes;
+    }
+
+    public double probesPerCheck() {
+        return this.edgeChecks == 0 ? 0.0 : (double) this.probes / this.edgeChecks;
+    }
+
+    /**
+     * @return the number of vertices with each degree, indexed by degree
+     */
+    public int[] getDegreeHistogram() {
+        return degreeHistogram.clone();
+    }
+
+    public double meanDegree() {
+        return this.numVertices == 0 ? 0.0 : 2.0 * this.numEdges / this.numVertices;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "vertices=%d edges=%d samples=%d rejectedSamples=%d sampleMs=%.1f"
+                        + " connectMs=%.1f searchMs=%.1f edgeCheckMs=%.1f densifyMs=%.1f"
+                        + " edgeChecks=%d rejectedEdges=%d probesPerCheck=%.2f degrees=%s",
+                numVertices, numEdges, samplesDrawn, samplesRejected, sampleNanos / 1e6,
+                connectNanos / 1e6, searchNanos / 1e6, edgeCheckNanos / 1e6, densifyNanos / 1e6,
+                edgeChecks, edgesRejected, probesPerCheck(), Arrays.toString(degreeHistogram));
+    }
+}
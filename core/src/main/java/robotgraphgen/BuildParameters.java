@@ -0,0 +1,186 @@
+package robotgraphgen;
+
+import java.util.Objects;
+
+/**
+ * Everything that determines the contents of a built roadmap, including the
+ * state of the map beyond its obstacles. Two graphs built with equal
+ * parameters are identical, which makes these suitable for recording
+ * alongside a saved roadmap or keying a cache.
+ */
+public class BuildParameters {
+    private final long mapHash;
+    private final int k;
+    private final double r;
+    private final int numVertices;
+    private final int haltonP;
+    private final int haltonQ;
+    private final boolean scrambled;
+    private final long scrambleSeed;
+    private final GraphOptions.EdgeCheck edgeCheck;
+    private final boolean lazyEdges;
+    private final int densifyBudget;
+    private final double tileSize;
+    private final GraphOptions.Sampling sampling;
+    private final boolean edgeWeights;
+    private final double rasterCellSize;
+
+    public BuildParameters(long mapHash, int k, double r, int numVertices,
+            int haltonP, int haltonQ, boolean scrambled, long scrambleSeed,
+            GraphOptions.EdgeCheck edgeCheck, boolean lazyEdges, int densifyBudget,
+            double tileSize, GraphOptions.Sampling sampling, boolean edgeWeights,
+            double rasterCellSize) {
+        this.mapHash = mapHash;
+        this.k = k;
+        this.r = r;
+        this.numVertices = numVertices;
+        this.haltonP = haltonP;
+        this.haltonQ = haltonQ;
+        this.scrambled = scrambled;
+        this.scrambleSeed = scrambled ? scrambleSeed : 0;
+        this.edgeCheck = edgeCheck;
+        this.lazyEdges = lazyEdges;
+        this.densifyBudget = densifyBudget;
+        this.tileSize = tileSize;
+        this.sampling = sampling;
+        this.edgeWeights = edgeWeights;
+        this.rasterCellSize = rasterCellSize;
+    }
+
+    /**
+     * @return the parameters a Graph built with these arguments would have
+     */
+    public static BuildParameters of(Map map, int k, double r, GraphOptions options) {
+        return of(map, k, r, options, 0);
+    }
+
+    /**
+     * @param tileSize the tile size of a tiled build, or 0 for a Graph
+     * @return the parameters a roadmap built with these arguments would have
+     */
+    public static BuildParameters of(Map map, int k, double r, GraphOptions options,
+            double tileSize) {
+        return new BuildParameters(map.contentHash(), k, r,
+                options.getNumVertices(),
+                options.getHaltonP(), options.getHaltonQ(),
+                options.isScrambled(), options.getScrambleSeed(),
+                options.getEdgeCheck(), options.useLazyEdges(), options.getDensifyBudget(),
+                tileSize, options.getSampling(), options.storeEdgeWeights(),
+                map.getRasterCellSize());
+    }
+
+    public long getMapHash() {
+        return mapHash;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public double getR() {
+        return r;
+    }
+
+    public int getNumVertices() {
+        return numVertices;
+    }
+
+    public int getHaltonP() {
+        return haltonP;
+    }
+
+    public int getHaltonQ() {
+        return haltonQ;
+    }
+
+    public boolean isScrambled() {
+        return scrambled;
+    }
+
+    public long getScrambleSeed() {
+        return scrambleSeed;
+    }
+
+    public GraphOptions.EdgeCheck getEdgeCheck() {
+        return edgeCheck;
+    }
+
+    /**
+     * @return whether the roadmap's edges were left unchecked for collisions
+     */
+    public boolean isLazyEdges() {
+        return lazyEdges;
+    }
+
+    public int getDensifyBudget() {
+        return densifyBudget;
+    }
+
+    /**
+     * @return the size of the tiles the roadmap was built in, or 0 if it was
+     *         built as a single Graph
+     */
+    public double getTileSize() {
+        return tileSize;
+    }
+
+    public GraphOptions.Sampling getSampling() {
+        return sampling;
+    }
+
+    /**
+     * @return whether the roadmap stores the length of each edge
+     */
+    public boolean hasEdgeWeights() {
+        return edgeWeights;
+    }
+
+    /**
+     * @return the cell size of the occupancy bitmap the map was rasterized
+     *         to when the roadmap was built, or 0 if its obstacles were
+     *         checked exactly
+     */
+    public double getRasterCellSize() {
+        return rasterCellSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof BuildParameters)) {
+            return false;
+        }
+        BuildParameters other = (BuildParameters) o;
+        return this.mapHash == other.mapHash
+                && this.k == other.k
+                && Double.compare(this.r, other.r) == 0
+                && this.numVertices == other.numVertices
+                && this.haltonP == other.haltonP
+                && this.haltonQ == other.haltonQ
+                && this.scrambled == other.scrambled
+                && this.scrambleSeed == other.scrambleSeed
+                && this.edgeCheck == other.edgeCheck
+                && this.lazyEdges == other.lazyEdges
+                && this.densifyBudget == other.densifyBudget
+                && Double.compare(this.tileSize, other.tileSize) == 0
+                && this.sampling == other.sampling
+                && this.edgeWeights == other.edgeWeights
+                && Double.compare(this.rasterCellSize, other.rasterCellSize) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mapHash, k, r, numVertices, haltonP, haltonQ,
+                scrambled, scrambleSeed, edgeCheck, lazyEdges, densifyBudget, tileSize, sampling,
+                edgeWeights, rasterCellSize);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "map=%016x k=%d r=%s vertices=%d halton=(%d,%d) scramble=%s edgeCheck=%s lazy=%s"
+                        + " densify=%d tile=%s sampling=%s weights=%s raster=%s",
+                mapHash, k, r, numVertices, haltonP, haltonQ,
+                scrambled ? Long.toString(scrambleSeed) : "none", edgeCheck, lazyEdges,
+                densifyBudget, tileSize, sampling, edgeWeights, rasterCellSize);
+    }
+}
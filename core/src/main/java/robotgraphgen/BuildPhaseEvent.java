@@ -0,0 +1,38 @@
+package robotgraphgen;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event spanning one phase of a Graph build.
+ */
+@Name("robotgraphgen.BuildPhase")
+@Label("Roadmap Build Phase")
+@Category("RobotGraphGen")
+@Description("One phase of building a roadmap: sampling, connecting or densifying")
+final class BuildPhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Vertices")
+    @Description("Vertices in the graph when the phase ended")
+    int vertices;
+
+    static BuildPhaseEvent start(String phase) {
+        BuildPhaseEvent event = new BuildPhaseEvent();
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    void finish(int vertices) {
+        end();
+        if (shouldCommit()) {
+            this.vertices = vertices;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package robotgraphgen;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates the timings and counters of one Graph build. Workers of a
+ * parallel build add to it concurrently.
+ */
+final class BuildRecorder {
+    final LongAdder searchNanos = new LongAdder();
+    final LongAdder edgeCheckNanos = new LongAdder();
+    final LongAdder edgeChecks = new LongAdder();
+    final LongAdder edgesRejected = new LongAdder();
+    final LongAdder probes = new LongAdder();
+
+    long sampleNanos;
+    // Vertices found by sampling, before densifying added any.
+    int sampledVertices;
+    long connectNanos;
+    long densifyNanos;
+}
@@ -0,0 +1,176 @@
+package robotgraphgen;
+
+import java.util.Arrays;
+
+/**
+ * The distance from each cell of a grid to the nearest obstacle, for skipping
+ * through free space when checking edges.
+ *
+ * Obstacles are marked conservatively, as in OccupancyBitmap, and a Euclidean
+ * distance transform gives each cell the distance from its center to the
+ * nearest marked cell's center. Any point in a cell and any point of an
+ * obstacle are each within half a cell diagonal of those centers, so the
+ * stored clearance is that distance less a full cell diagonal. It is a lower
+ * bound: no obstacle is closer to any point of the cell.
+ */
+public class ClearanceField {
+    private static final double SQRT_2 = Math.sqrt(2);
+
+    private final double width;
+    private final double height;
+    private final double cellSize;
+    private final int cols;
+    private final int rows;
+    // Squared distances in cells while building, then clearances in pixels.
+    private final float[] clearance;
+
+    /**
+     * @param width    the width of the region covered by the field
+     * @param height   the height of the region covered by the field
+     * @param cellSize the side length of each cell
+     */
+    public ClearanceField(double width, double height, double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.cellSize = cellSize;
+        this.cols = (int) Math.floor(width / cellSize) + 1;
+        this.rows = (int) Math.floor(height / cellSize) + 1;
+        long cells = (long) this.cols * this.rows;
+        if (cells > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Field too large: " + cells + " cells");
+        }
+        this.clearance = new float[(int) cells];
+        Arrays.fill(this.clearance, Float.POSITIVE_INFINITY);
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Marks every cell touching the rectangle as an obstacle. Takes effect
+     * when the distances are next computed.
+     */
+    public void block(double x, double y, double w, double h) {
+        int minCol = clampCol(x), maxCol = clampCol(x + w);
+        int minRow = clampRow(y), maxRow = clampRow(y + h);
+        for (int r = minRow; r <= maxRow; r++) {
+            Arrays.fill(this.clearance, r * this.cols + minCol, r * this.cols + maxCol + 1, 0f);
+        }
+    }
+
+    /**
+     * Turns the marked cells into clearances. Must be called once, after
+     * every obstacle has been blocked.
+     */
+    public void computeDistances() {
+        // Felzenszwalb and Huttenlocher's transform: exact squared distances
+        // along each column, then along each row using the column results.
+        int longest = Math.max(this.cols, this.rows);
+        double[] f = new double[longest];
+        double[] d = new double[longest];
+        int[] v = new int[longest];
+        double[] z = new double[longest + 1];
+
+        for (int c = 0; c < this.cols; c++) {
+            for (int r = 0; r < this.rows; r++) {
+                f[r] = this.clearance[r * this.cols + c];
+            }
+            transform(f, this.rows, d, v, z);
+            for (int r = 0; r < this.rows; r++) {
+                this.clearance[r * this.cols + c] = (float) d[r];
+            }
+        }
+        for (int r = 0; r < this.rows; r++) {
+            int row = r * this.cols;
+            for (int c = 0; c < this.cols; c++) {
+                f[c] = this.clearance[row + c];
+            }
+            transform(f, this.cols, d, v, z);
+            for (int c = 0; c < this.cols; c++) {
+                // The column distances were stored as floats, which is exact
+                // up to 4096 cells. Shaving a little more than float rounding
+                // keeps the bound conservative beyond that.
+                double cells = Math.sqrt(d[c]) * (1 - 1e-6);
+                this.clearance[row + c] = Math.nextDown(
+                        (float) Math.max(0, (cells - SQRT_2) * this.cellSize));
+            }
+        }
+    }
+
+    /**
+     * @return whether (x, y) lies within the region covered by the field
+     */
+    public boolean covers(double x, double y) {
+        return 0 <= x && x <= this.width && 0 <= y && y <= this.height;
+    }
+
+    /**
+     * @return a distance within which there are no obstacles around (x, y),
+     *         which is 0 next to obstacles and outside the field. It's
+     *         infinite if nothing was blocked.
+     */
+    public double clearance(double x, double y) {
+        if (!covers(x, y)) {
+            return 0;
+        }
+        return Math.max(0f, this.clearance[(int) (y / this.cellSize) * this.cols
+                + (int) (x / this.cellSize)]);
+    }
+
+    /**
+     * The one-dimensional squared distance transform of f, a lower envelope
+     * of parabolas rooted at each sample.
+     */
+    private static void transform(double[] f, int n, double[] d, int[] v, double[] z) {
+        int k = 0;
+        int first = 0;
+        while (first < n && f[first] == Double.POSITIVE_INFINITY) {
+            first++;
+        }
+        if (first == n) {
+            Arrays.fill(d, 0, n, Double.POSITIVE_INFINITY);
+            return;
+        }
+        v[0] = first;
+        z[0] = Double.NEGATIVE_INFINITY;
+        z[1] = Double.POSITIVE_INFINITY;
+        for (int q = first + 1; q < n; q++) {
+            if (f[q] == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            double s = intersection(f, q, v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = intersection(f, q, v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = Double.POSITIVE_INFINITY;
+        }
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q) {
+                k++;
+            }
+            double dq = q - v[k];
+            d[q] = dq * dq + f[v[k]];
+        }
+    }
+
+    private static double intersection(double[] f, int q, int p) {
+        return ((f[q] + (double) q * q) - (f[p] + (double) p * p)) / (2.0 * (q - p));
+    }
+
+    private int clampCol(double x) {
+        return (int) Math.max(0, Math.min(this.cols - 1, Math.floor(x / this.cellSize)));
+    }
+
+    private int clampRow(double y) {
+        return (int) Math.max(0, Math.min(this.rows - 1, Math.floor(y / this.cellSize)));
+    }
+}
@@ -0,0 +1,198 @@
+package robotgraphgen;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+
+/**
+ * A read-only roadmap stored in flat primitive arrays. Coordinates are
+ * interleaved as {x0, y0, x1, y1, ...} and adjacency is kept in compressed
+ * sparse row form: the edges leaving vertex v are the indices e with
+ * edgeStart(v) <= e < edgeEnd(v), and target(e) is the vertex each leads to.
+ *
+ * None of the accessors allocate, so planners can walk the graph like so:
+ *
+ * <pre>
+ * for (int e = g.edgeStart(v); e < g.edgeEnd(v); e++) {
+ *     int n = g.target(e);
+ * }
+ * </pre>
+ *
+ * The arrays are held as buffers so a graph can be backed either by heap
+ * arrays or directly by a memory-mapped roadmap file.
+ */
+public class CompactGraph {
+    private final DoubleBuffer coordinates;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    // Per-edge lengths, or null if they weren't requested.
+    private final FloatBuffer weights;
+
+    /**
+     * @param coordinates the interleaved x, y coordinates of each vertex
+     * @param offsets     numVertices + 1 offsets into targets
+     * @param targets     the target vertex of each edge
+     * @param weights     the length of each edge, or null
+     */
+    public CompactGraph(double[] coordinates, int[] offsets, int[] targets,
+            float[] weights) {
+        this(DoubleBuffer.wrap(coordinates), IntBuffer.wrap(offsets),
+                IntBuffer.wrap(targets), weights == null ? null : FloatBuffer.wrap(weights));
+    }
+
+    /**
+     * Wraps existing buffers without copying them. Each buffer's contents run
+     * from index 0 to its limit.
+     *
+     * @param coordinates the interleaved x, y coordinates of each vertex
+     * @param offsets     numVertices + 1 offsets into targets
+     * @param targets     the target vertex of each edge
+     * @param weights     the length of each edge, or null
+     */
+    public CompactGraph(DoubleBuffer coordinates, IntBuffer offsets, IntBuffer targets,
+            FloatBuffer weights) {
+        if (offsets.limit() < 1) {
+            throw new IllegalArgumentException("Offsets must have at least one entry");
+        }
+        if (coordinates.limit() != 2 * (offsets.limit() - 1)) {
+            throw new IllegalArgumentException("Coordinates and offsets disagree on vertex count");
+        }
+        if (offsets.get(offsets.limit() - 1) != targets.limit()) {
+            throw new IllegalArgumentException("Offsets and targets disagree on edge count");
+        }
+        if (weights != null && weights.limit() != targets.limit()) {
+            throw new IllegalArgumentException("Weights and targets disagree on edge count");
+        }
+        this.coordinates = coordinates;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Copies adjacency lists into compact form.
+     *
+     * @param coordinates the coordinates of each vertex as {x, y}
+     * @param neighbors   the neighbors of each vertex
+     * @param withWeights whether to store the length of each edge
+     * @return the compact copy
+     */
+    public static CompactGraph fromLists(List<double[]> coordinates,
+            List<List<Integer>> neighbors, boolean withWeights) {
+        int n = coordinates.size();
+        double[] flat = new double[2 * n];
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            double[] p = coordinates.get(i);
+            flat[2 * i] = p[0];
+            flat[2 * i + 1] = p[1];
+            offsets[i + 1] = offsets[i] + neighbors.get(i).size();
+        }
+
+        int[] targets = new int[offsets[n]];
+        float[] weights = withWeights ? new float[offsets[n]] : null;
+        for (int i = 0; i < n; i++) {
+            int e = offsets[i];
+            for (int t : neighbors.get(i)) {
+                targets[e] = t;
+                if (withWeights) {
+                    double dx = flat[2 * t] - flat[2 * i];
+                    double dy = flat[2 * t + 1] - flat[2 * i + 1];
+                    weights[e] = (float) Math.sqrt(dx * dx + dy * dy);
+                }
+                e++;
+            }
+        }
+        return new CompactGraph(flat, offsets, targets, weights);
+    }
+
+    public int numVertices() {
+        return this.offsets.limit() - 1;
+    }
+
+    /**
+     * @return the number of directed edges, which counts each connection once
+     *         from each endpoint
+     */
+    public int numEdges() {
+        return this.targets.limit();
+    }
+
+    public double x(int v) {
+        return this.coordinates.get(2 * v);
+    }
+
+    public double y(int v) {
+        return this.coordinates.get(2 * v + 1);
+    }
+
+    public int degree(int v) {
+        return this.offsets.get(v + 1) - this.offsets.get(v);
+    }
+
+    /**
+     * @return the index of the first edge leaving v
+     */
+    public int edgeStart(int v) {
+        return this.offsets.get(v);
+    }
+
+    /**
+     * @return one past the index of the last edge leaving v
+     */
+    public int edgeEnd(int v) {
+        return this.offsets.get(v + 1);
+    }
+
+    /**
+     * @return the vertex edge e leads to
+     */
+    public int target(int e) {
+        return this.targets.get(e);
+    }
+
+    public boolean hasWeights() {
+        return this.weights != null;
+    }
+
+    /**
+     * @return the length of edge e
+     * @throws IllegalStateException if the graph was built without weights
+     */
+    public float weight(int e) {
+        if (this.weights == null) {
+            throw new IllegalStateException("Graph was built without edge weights");
+        }
+        return this.weights.get(e);
+    }
+
+    /**
+     * @return a read-only view of the interleaved vertex coordinates
+     */
+    public DoubleBuffer coordinateBuffer() {
+        return this.coordinates.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a read-only view of the edge offsets
+     */
+    public IntBuffer offsetBuffer() {
+        return this.offsets.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a read-only view of the edge targets
+     */
+    public IntBuffer targetBuffer() {
+        return this.targets.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a read-only view of the edge weights, or null if the graph has
+     *         none
+     */
+    public FloatBuffer weightBuffer() {
+        return this.weights == null ? null : this.weights.asReadOnlyBuffer();
+    }
+}
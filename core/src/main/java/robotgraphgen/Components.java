@@ -0,0 +1,105 @@
+package robotgraphgen;
+
+import java.util.Arrays;
+
+/**
+ * The connected components of a roadmap. Two vertices in different
+ * components have no path between them, so planners can reject such
+ * queries without searching, and a roadmap with more than one component
+ * usually has gaps worth filling with Graph.densify.
+ *
+ * Components follow the roadmap's edges as stored. On a roadmap built with
+ * lazy edges they may join vertices whose only connecting edges turn out
+ * to be blocked.
+ */
+public class Components {
+    // The component of each vertex, numbered from 0 by first vertex.
+    private final int[] component;
+    private final int[] sizes;
+    private final int largest;
+
+    private Components(int[] component, int[] sizes) {
+        this.component = component;
+        this.sizes = sizes;
+        int largest = 0;
+        for (int c = 1; c < sizes.length; c++) {
+            if (sizes[c] > sizes[largest]) {
+                largest = c;
+            }
+        }
+        this.largest = largest;
+    }
+
+    /**
+     * Finds the components of a roadmap in time linear in its size.
+     *
+     * @param graph the roadmap
+     * @return its components
+     */
+    public static Components of(CompactGraph graph) {
+        int n = graph.numVertices();
+        UnionFind sets = new UnionFind(n);
+        for (int v = 0; v < n; v++) {
+            sets.add();
+        }
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                sets.union(v, graph.target(e));
+            }
+        }
+        return from(sets, n);
+    }
+
+    /**
+     * Numbers the sets of the first n ids in order of their first member.
+     */
+    static Components from(UnionFind sets, int n) {
+        int[] component = new int[n];
+        int[] label = new int[n];
+        Arrays.fill(label, -1);
+        int[] sizes = new int[sets.numSets()];
+        int count = 0;
+        for (int v = 0; v < n; v++) {
+            int root = sets.find(v);
+            if (label[root] < 0) {
+                label[root] = count++;
+            }
+            component[v] = label[root];
+            sizes[component[v]]++;
+        }
+        return new Components(component, Arrays.copyOf(sizes, count));
+    }
+
+    public int count() {
+        return this.sizes.length;
+    }
+
+    /**
+     * @return the component vertex v belongs to
+     */
+    public int componentOf(int v) {
+        return this.component[v];
+    }
+
+    /**
+     * @return how many vertices are in component c
+     */
+    public int size(int c) {
+        return this.sizes[c];
+    }
+
+    /**
+     * @return the component with the most vertices, or 0 for an empty
+     *         roadmap
+     */
+    public int largest() {
+        return this.largest;
+    }
+
+    /**
+     * @return whether there is a path between u and v
+     */
+    public boolean connected(int u, int v) {
+        return this.component[u] == this.component[v];
+    }
+}
@@ -0,0 +1,152 @@
+package robotgraphgen;
+
+/**
+ * Maps points of the unit square onto the free space of a map, so sampling a
+ * mostly blocked map wastes no more points than sampling an empty one.
+ *
+ * The map is cut into equal cells, each free, blocked or partly blocked. A
+ * point (u, v) is placed by choosing a row of cells with v, in proportion to
+ * how many of its cells aren't fully blocked, then a cell along that row with
+ * u. Nearby points of the unit square stay nearby on the map, so evenly
+ * spread points stay evenly spread over the free space. Only points in
+ * partly blocked cells need checking against the map, and those cells cover
+ * little more than the outlines of the obstacles.
+ */
+final class FreeSpaceSampler {
+    private static final byte FREE = 0;
+    private static final byte PARTIAL = 1;
+    private static final byte BLOCKED = 2;
+
+    private final Map map;
+    private final int cols;
+    private final int rows;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final byte[] state;
+    // The cells that aren't fully blocked, in row order, and where each row's
+    // cells start among them.
+    private final int[] usable;
+    private final int[] rowStart;
+
+    /**
+     * @param map   the map to sample
+     * @param cells roughly how many cells to cut it into; more cells make the
+     *              partly blocked ones cover less of the map
+     */
+    FreeSpaceSampler(Map map, int cells) {
+        this.map = map;
+        double width = map.getWidth();
+        double height = map.getHeight();
+        this.cols = (int) Math.max(1, Math.min(cells, Math.round(Math.sqrt(cells * width / height))));
+        this.rows = Math.max(1, cells / this.cols);
+        this.cellWidth = width / this.cols;
+        this.cellHeight = height / this.rows;
+        this.state = new byte[this.cols * this.rows];
+
+        // Cells that only touch an obstacle are treated as partly blocked,
+        // since rounding can put a point on the touching edge.
+        double margin = 1e-9 * Math.max(width, height);
+        for (int i = 0; i < map.numObstacles(); i++) {
+            double[] o = map.getObstacle(i);
+            if (o[2] > 0 && o[3] > 0) {
+                block(o[0], o[1], o[0] + o[2], o[1] + o[3], margin);
+            }
+        }
+
+        int count = 0;
+        for (byte s : this.state) {
+            if (s != BLOCKED) {
+                count++;
+            }
+        }
+        this.usable = new int[count];
+        this.rowStart = new int[this.rows + 1];
+        count = 0;
+        for (int cell = 0; cell < this.state.length; cell++) {
+            if (cell % this.cols == 0) {
+                this.rowStart[cell / this.cols] = count;
+            }
+            if (this.state[cell] != BLOCKED) {
+                this.usable[count++] = cell;
+            }
+        }
+        this.rowStart[this.rows] = count;
+    }
+
+    /**
+     * @return how many cells aren't fully blocked; none means the map has no
+     *         free space
+     */
+    int numCells() {
+        return this.usable.length;
+    }
+
+    /**
+     * @return the area of the cells that aren't fully blocked, which bounds
+     *         the free area of the map
+     */
+    double area() {
+        return this.usable.length * this.cellWidth * this.cellHeight;
+    }
+
+    /**
+     * Places a point of the unit square in the usable cells. Must only be
+     * called if there are any.
+     *
+     * @param u   the point's first coordinate, in [0, 1)
+     * @param v   the point's second coordinate, in [0, 1)
+     * @param out receives the point's map coordinates
+     * @return whether the point is free; it can only be blocked if it landed
+     *         in a partly blocked cell
+     */
+    boolean sampleInto(double u, double v, double[] out) {
+        // The last row whose cells start at or before t, which is never an
+        // empty one.
+        double t = v * this.usable.length;
+        int lo = 0;
+        int hi = this.rows - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (this.rowStart[mid] <= t) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        int start = this.rowStart[lo];
+        int count = this.rowStart[lo + 1] - start;
+
+        double s = u * count;
+        int i = Math.min((int) s, count - 1);
+        int cell = this.usable[start + i];
+        out[0] = (cell % this.cols + (s - i)) * this.cellWidth;
+        out[1] = (lo + (t - start) / count) * this.cellHeight;
+        return this.state[cell] == FREE || !this.map.inObstacle(out[0], out[1]);
+    }
+
+    /**
+     * Marks the cells inside the rectangle from (x0, y0) to (x1, y1) blocked
+     * and those within margin of it partly blocked.
+     */
+    private void block(double x0, double y0, double x1, double y1, double margin) {
+        int c0 = clamp((int) Math.floor((x0 - margin) / this.cellWidth), this.cols);
+        int c1 = clamp((int) Math.ceil((x1 + margin) / this.cellWidth) - 1, this.cols);
+        int r0 = clamp((int) Math.floor((y0 - margin) / this.cellHeight), this.rows);
+        int r1 = clamp((int) Math.ceil((y1 + margin) / this.cellHeight) - 1, this.rows);
+        for (int r = r0; r <= r1; r++) {
+            boolean rowCovered = y0 <= r * this.cellHeight && (r + 1) * this.cellHeight <= y1;
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * this.cols + c;
+                if (rowCovered && x0 <= c * this.cellWidth && (c + 1) * this.cellWidth <= x1) {
+                    this.state[cell] = BLOCKED;
+                } else if (this.state[cell] == FREE) {
+                    this.state[cell] = PARTIAL;
+                }
+            }
+        }
+    }
+
+    private static int clamp(int i, int n) {
+        return Math.max(0, Math.min(n - 1, i));
+    }
+}
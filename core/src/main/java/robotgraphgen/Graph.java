@@ -0,0 +1,1184 @@
+package robotgraphgen;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+public class Graph {
+    // The maximum allowed distance between points checked for collision on
+    // an edge.
+    private static final double EDGE_CHECK_PRECISION = 10.0;
+    private static final int EDGE_CHECK_BASE = 2; // Base for Van der Corput
+    // Free points tried for each biased vertex before settling for the last.
+    private static final int MAX_BIAS_ATTEMPTS = 64;
+
+    private List<double[]> coordinates;
+    private List<List<Integer>> neighbors;
+    private GraphOptions options;
+    private BuildParameters parameters;
+    // Spatial index over the coordinates, only present while building.
+    private KdTree index;
+    // Reused result buffer for sequential index queries.
+    private KdTree.Neighbors inRange;
+    // Selection buffers for building without an index, only present while
+    // building.
+    private TopKHeap closest;
+    private int[] candidateIds;
+    private double[] candidateDistances;
+    // Flat copy of the graph. With compact storage this is the only copy, and
+    // coordinates and neighbors are null.
+    private CompactGraph compactGraph;
+    // How many Halton points were drawn to find the vertices.
+    private long samplesDrawn;
+    // Vertices per unit of free area, used when resampling freed space.
+    private double sampleDensity;
+    // Buckets of vertex indices, built on the first incremental repair.
+    private ObstacleGrid vertexGrid;
+    private boolean repaired;
+    // Collects timings and counters while building, if metrics are on.
+    private BuildRecorder recorder;
+    private BuildMetrics metrics;
+
+    /**
+     * 
+     * @param map the map to generate a graph over
+     * @param k   the maximum number of neighbors to connect each vertex with
+     * @param r   the maximum distance between neighbors in pixels
+     */
+    public Graph(Map map, int k, double r) {
+        this(map, k, r, new GraphOptions());
+    }
+
+    /**
+     * @param map     the map to generate a graph over
+     * @param k       the maximum number of neighbors to connect each vertex with
+     * @param r       the maximum distance between neighbors in pixels
+     * @param options settings controlling how the graph is built
+     */
+    public Graph(Map map, int k, double r, GraphOptions options) {
+        this.options = options;
+        this.parameters = BuildParameters.of(map, k, r, options);
+        this.coordinates = new ArrayList<>();
+        this.neighbors = new ArrayList<>();
+        this.recorder = options.collectMetrics() ? new BuildRecorder() : null;
+        GraphBuildEvent event = new GraphBuildEvent();
+        event.begin();
+        buildGraph(map, k, r);
+        if (options.getDensifyBudget() > 0) {
+            BuildPhaseEvent phase = BuildPhaseEvent.start("densify");
+            long start = System.nanoTime();
+            addSamplesNearGaps(map, options.getDensifyBudget());
+            if (this.recorder != null) {
+                this.recorder.densifyNanos = System.nanoTime() - start;
+            }
+            phase.finish(numVertices());
+        }
+        if (this.recorder != null) {
+            this.metrics = snapshotMetrics();
+            this.recorder = null;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.k = k;
+            event.r = r;
+            event.vertices = numVertices();
+            event.edges = numUndirectedEdges();
+            event.samplesDrawn = this.samplesDrawn;
+            if (this.metrics != null) {
+                event.edgeChecks = this.metrics.getEdgeChecks();
+                event.edgesRejected = this.metrics.getEdgesRejected();
+                event.probes = this.metrics.getProbes();
+            }
+            event.commit();
+        }
+
+        // prints out coords of vertices with fewer than k neighbors
+        if (options.reportUnderConnected()) {
+            for (int i = 0; i < this.neighbors.size(); i++) {
+                if (this.neighbors.get(i).size() < k) {
+                    for (double d : this.coordinates.get(i))
+                        System.out.print(d + ", ");
+
+                    System.out.println();
+                }
+            }
+        }
+
+        if (options.useCompactStorage()) {
+            this.compactGraph = compact();
+            this.coordinates = null;
+            this.neighbors = null;
+        }
+    }
+
+    /**
+     * @return the settings that determined this graph's vertices and edges
+     *         when it was built; after an incremental repair the graph no
+     *         longer matches a fresh build with them
+     */
+    public BuildParameters getBuildParameters() {
+        return this.parameters;
+    }
+
+    /**
+     * @return what the build spent its time on, or null if the options
+     *         didn't ask for metrics
+     */
+    public BuildMetrics getBuildMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Builds the metrics snapshot. Only called while the adjacency lists
+     * exist.
+     */
+    private BuildMetrics snapshotMetrics() {
+        int maxDegree = 0;
+        for (List<Integer> adjacent : this.neighbors) {
+            maxDegree = Math.max(maxDegree, adjacent.size());
+        }
+        int[] histogram = new int[maxDegree + 1];
+        for (List<Integer> adjacent : this.neighbors) {
+            histogram[adjacent.size()]++;
+        }
+        return new BuildMetrics(numVertices(), numUndirectedEdges(), this.samplesDrawn,
+                this.samplesDrawn - this.recorder.sampledVertices, this.recorder, histogram);
+    }
+
+    private long numUndirectedEdges() {
+        if (this.neighbors == null) {
+            return this.compactGraph.numEdges() / 2;
+        }
+        long directed = 0;
+        for (List<Integer> adjacent : this.neighbors) {
+            directed += adjacent.size();
+        }
+        return directed / 2;
+    }
+
+    /**
+     * @return whether the graph has been changed by obstacleAdded,
+     *         obstacleRemoved or densify since it was built
+     */
+    public boolean isRepaired() {
+        return this.repaired;
+    }
+
+    public int numVertices() {
+        if (this.coordinates == null) {
+            return this.compactGraph.numVertices();
+        }
+        return this.coordinates.size();
+    }
+
+    /**
+     * @param v the index of a vertex
+     * @return the indices of the vertices v is connected to
+     */
+    public List<Integer> neighborsOf(int v) {
+        if (this.neighbors == null) {
+            List<Integer> result = new ArrayList<>();
+            for (int e = this.compactGraph.edgeStart(v); e < this.compactGraph.edgeEnd(v); e++) {
+                result.add(this.compactGraph.target(e));
+            }
+            return Collections.unmodifiableList(result);
+        }
+        return Collections.unmodifiableList(this.neighbors.get(v));
+    }
+
+    /**
+     * @param v the index of a vertex
+     * @return the coordinates of v as {x, y}
+     */
+    public double[] coordinatesOf(int v) {
+        if (this.coordinates == null) {
+            return new double[] { this.compactGraph.x(v), this.compactGraph.y(v) };
+        }
+        return this.coordinates.get(v).clone();
+    }
+
+    /**
+     * Returns a validator for this graph's edges, which checks each edge for
+     * collisions the first time it's asked about. Graphs built with lazy
+     * edges must be searched through one, since their edges are unchecked.
+     * 
+     * @param map the map the graph was built on
+     * @return a new validator over the compact form of this graph
+     */
+    public LazyEdges lazyEdges(Map map) {
+        return new LazyEdges(compact(), map, this.parameters);
+    }
+
+    /**
+     * @return the connected components of the graph as it is now
+     */
+    public Components components() {
+        if (this.neighbors == null) {
+            return Components.of(this.compactGraph);
+        }
+        UnionFind sets = connectedSets();
+        return Components.from(sets, this.coordinates.size());
+    }
+
+    /**
+     * Adds vertices where the roadmap has gaps, instead of sampling the whole
+     * map more densely. Samples are drawn around vertices outside the
+     * largest component and vertices with fewer than k neighbors, since
+     * those sit at the edges of gaps and in narrow passages. Every other
+     * sample is a bridge test, kept only if it lies between two blocked
+     * points, which favors narrow passages. Sampling stops once the roadmap
+     * is a single component or the budget is spent.
+     * 
+     * @param map    the map the graph was built on
+     * @param budget the most samples to draw
+     * @return how many vertices were added
+     */
+    public int densify(Map map, int budget) {
+        requireAdjacencyLists();
+        int added = addSamplesNearGaps(map, budget);
+        if (added > 0) {
+            this.repaired = true;
+        }
+        return added;
+    }
+
+    private int addSamplesNearGaps(Map map, int budget) {
+        ensureVertexGrid(map);
+        double r = this.parameters.getR();
+        UnionFind sets = connectedSets();
+        HaltonSequence offsets = new HaltonSequence(2, 3);
+        // Index 0 is a zero offset, which would land on the seed itself.
+        offsets.skipTo(1);
+        double[] offset = new double[2];
+        // A third dimension for the direction of bridge tests.
+        VanDerCorput directions = new VanDerCorput(5);
+
+        int[] seeds = new int[0];
+        int next = 0;
+        int added = 0;
+        for (int attempt = 0; attempt < budget && sets.numSets() > 1; attempt++) {
+            if (next == seeds.length) {
+                // Gather seeds afresh after each pass, as the gaps close.
+                seeds = gapSeeds(sets);
+                next = 0;
+                if (seeds.length == 0) {
+                    break;
+                }
+            }
+            double[] seed = this.coordinates.get(seeds[next++]);
+
+            // A point uniformly distributed over the disc of radius r.
+            offsets.nextInto(offset);
+            double radius = r * Math.sqrt(offset[0]);
+            double angle = 2 * Math.PI * offset[1];
+            double x = seed[0] + radius * Math.cos(angle);
+            double y = seed[1] + radius * Math.sin(angle);
+            if (x < 0 || y < 0 || x > map.getWidth() || y > map.getHeight()
+                    || map.inObstacle(x, y)) {
+                continue;
+            }
+            double direction = 2 * Math.PI * directions.next();
+            if (attempt % 2 == 1) {
+                double dx = r / 2 * Math.cos(direction);
+                double dy = r / 2 * Math.sin(direction);
+                if (!map.inObstacle(x - dx, y - dy) || !map.inObstacle(x + dx, y + dy)) {
+                    continue;
+                }
+            }
+
+            int v = this.coordinates.size();
+            addVertex(x, y);
+            sets.add();
+            reconnect(map, new int[] { v });
+            for (int u : this.neighbors.get(v)) {
+                sets.union(v, u);
+            }
+            connectComponents(map, v, sets);
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * Connects v to the closest in-range vertex of each component it isn't
+     * yet part of, since its k closest neighbors may all lie on one side of
+     * the gap it was placed in.
+     */
+    private void connectComponents(Map map, int v, UnionFind sets) {
+        double[] p = this.coordinates.get(v);
+        double r = this.parameters.getR();
+        int[] candidates = verticesNear(new double[] { p[0], p[1], 0, 0 }, r);
+        Integer[] sorted = new Integer[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            sorted[i] = candidates[i];
+        }
+        Arrays.sort(sorted, Comparator
+                .comparingDouble((Integer u) -> distanceSquared(p, this.coordinates.get(u)))
+                .thenComparingInt(u -> u));
+        for (int u : sorted) {
+            if (u == v || sets.find(u) == sets.find(v) || distance(p, this.coordinates.get(u)) > r) {
+                continue;
+            }
+            if (edgeIsValid(p, this.coordinates.get(u), map)) {
+                this.neighbors.get(v).add(u);
+                this.neighbors.get(u).add(v);
+                sets.union(v, u);
+            }
+        }
+    }
+
+    /**
+     * @return the vertices outside the largest component, then those inside
+     *         it with fewer than k neighbors
+     */
+    private int[] gapSeeds(UnionFind sets) {
+        int n = this.coordinates.size();
+        int largest = 0;
+        for (int v = 1; v < n; v++) {
+            if (sets.sizeOf(v) > sets.sizeOf(largest)) {
+                largest = v;
+            }
+        }
+        int largestRoot = sets.find(largest);
+        int k = this.parameters.getK();
+        List<Integer> outside = new ArrayList<>();
+        List<Integer> sparse = new ArrayList<>();
+        for (int v = 0; v < n; v++) {
+            if (sets.find(v) != largestRoot) {
+                outside.add(v);
+            } else if (this.neighbors.get(v).size() < k) {
+                sparse.add(v);
+            }
+        }
+        outside.addAll(sparse);
+        return outside.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private UnionFind connectedSets() {
+        int n = this.coordinates.size();
+        UnionFind sets = new UnionFind(n);
+        for (int v = 0; v < n; v++) {
+            sets.add();
+        }
+        for (int v = 0; v < n; v++) {
+            for (int u : this.neighbors.get(v)) {
+                sets.union(v, u);
+            }
+        }
+        return sets;
+    }
+
+    /**
+     * @param map the map the graph was built on
+     * @return a planner answering path queries over the compact form of
+     *         this graph
+     */
+    public PathPlanner planner(Map map) {
+        return new PathPlanner(compact(), map, this.parameters);
+    }
+
+    /**
+     * @param map    the map the graph was built on
+     * @param oracle landmark distances for this graph, or null
+     * @return a planner guided by the oracle's distance bounds
+     */
+    public PathPlanner planner(Map map, LandmarkOracle oracle) {
+        return new PathPlanner(compact(), map, this.parameters, oracle);
+    }
+
+    /**
+     * Returns the graph in flat primitive arrays, copying it on the first call
+     * unless it was built with compact storage.
+     * 
+     * @return a read-only compact view of this graph
+     */
+    public CompactGraph compact() {
+        if (this.compactGraph == null) {
+            this.compactGraph = CompactGraph.fromLists(
+                    this.coordinates, this.neighbors, this.options.storeEdgeWeights());
+        }
+        return this.compactGraph;
+    }
+
+    /**
+     * @param map the map to build the graph on top of
+     * @param k   the maximum number of neighbors to connect each vertex with
+     * @param r   the maximum distance between neighbors in pixels
+     */
+    private void buildGraph(Map map, int k, double r) {
+        if (this.options.getParallelism() > 1) {
+            ForkJoinPool pool = new ForkJoinPool(this.options.getParallelism());
+            try {
+                buildGraph(map, k, r, pool);
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            buildGraph(map, k, r, null);
+        }
+    }
+
+    /**
+     * @param map  the map to build the graph on top of
+     * @param k    the maximum number of neighbors to connect each vertex with
+     * @param r    the maximum distance between neighbors in pixels
+     * @param pool the pool to spread work across, or null to build on this
+     *             thread
+     */
+    private void buildGraph(Map map, int k, double r, ForkJoinPool pool) {
+        // Generate vertices on the map.
+        BuildPhaseEvent phase = BuildPhaseEvent.start("sample");
+        long start = System.nanoTime();
+        if (this.options.getSampling() != GraphOptions.Sampling.UNIFORM) {
+            // Free space sampling draws few enough points not to need the
+            // pool.
+            generateVerticesInFreeSpace(map, r);
+        } else if (pool != null) {
+            generateVerticesInParallel(map, pool);
+        } else {
+            generateVertices(map);
+        }
+        if (this.recorder != null) {
+            this.recorder.sampleNanos = System.nanoTime() - start;
+            this.recorder.sampledVertices = numVertices();
+        }
+        phase.finish(numVertices());
+
+        // The number of vertices is now known. Initialize the neighbors list
+        // with empty lists.
+        for (int i = 0; i < this.numVertices(); i++) {
+            this.neighbors.add(new ArrayList<>());
+        }
+
+        phase = BuildPhaseEvent.start("connect");
+        start = System.nanoTime();
+        if (this.options.useSpatialIndex() || pool != null) {
+            this.index = new KdTree(this.coordinates);
+            this.inRange = new KdTree.Neighbors(16);
+            if (this.recorder != null) {
+                this.recorder.searchNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        if (pool != null) {
+            connectInParallel(k, r, map, pool);
+        } else {
+            // Generate edges by connecting each vertex with its neighbors.
+            for (int i = 0; i < this.numVertices(); i++) {
+                // Add all neighbors that can be connected to this vertex.
+                updateNeighbors(i, k, r, map);
+            }
+        }
+        if (this.recorder != null) {
+            this.recorder.connectNanos = System.nanoTime() - start;
+        }
+        phase.finish(numVertices());
+
+        this.index = null;
+        this.inRange = null;
+        this.closest = null;
+        this.candidateIds = null;
+        this.candidateDistances = null;
+    }
+
+    /**
+     * Connects vertices the same way updateNeighbors does, but with the
+     * neighbor search and collision checks spread across worker threads.
+     * 
+     * Each worker finds, for one vertex, the first k in-range candidates with
+     * valid edges. Since updateNeighbors never adds more than k edges from a
+     * vertex and skips candidates with invalid edges, those candidates are all
+     * it could ever use. The edges are then added on this thread in vertex
+     * order, so the result doesn't depend on the number of threads.
+     * 
+     * @param k    the maximum number of neighbors to connect each vertex with
+     * @param r    the maximum distance between neighbors in pixels
+     * @param map  a map of all obstacles within the space
+     * @param pool the pool to spread the work across
+     */
+    private void connectInParallel(int k, double r, Map map, ForkJoinPool pool) {
+        int[][] validCandidates = new int[this.numVertices()][];
+        ThreadLocal<KdTree.Neighbors> buffers = ThreadLocal.withInitial(
+                () -> new KdTree.Neighbors(16));
+        pool.submit(() -> IntStream.range(0, this.numVertices())
+                .parallel()
+                .forEach(i -> validCandidates[i] = findValidCandidates(
+                        i, k, r, map, buffers.get())))
+                .join();
+
+        for (int i = 0; i < this.numVertices(); i++) {
+            List<Integer> currNeighbors = this.neighbors.get(i);
+            for (int j = 0; j < validCandidates[i].length && currNeighbors.size() < k; j++) {
+                int otherPoint = validCandidates[i][j];
+                currNeighbors.add(otherPoint);
+                this.neighbors.get(otherPoint).add(i);
+            }
+        }
+    }
+
+    /**
+     * @return the closest in-range vertices, at most k of them, that currPoint
+     *         has a valid edge to
+     */
+    private int[] findValidCandidates(int currPoint, int k, double r, Map map,
+            KdTree.Neighbors buffer) {
+        double[] currCoords = this.coordinates.get(currPoint);
+        long start = this.recorder != null ? System.nanoTime() : 0;
+        this.index.withinRadius(currCoords[0], currCoords[1], r, currPoint, buffer);
+        if (this.recorder != null) {
+            this.recorder.searchNanos.add(System.nanoTime() - start);
+        }
+        int[] valid = new int[Math.min(k, buffer.size())];
+        int found = 0;
+        for (int i = 0; i < buffer.size() && found < valid.length; i++) {
+            if (this.options.useLazyEdges()
+                    || edgeIsValid(currCoords, this.coordinates.get(buffer.get(i)), map)) {
+                valid[found++] = buffer.get(i);
+            }
+        }
+        return found == valid.length ? valid : Arrays.copyOf(valid, found);
+    }
+
+    private HaltonSequence newHaltonSequence() {
+        if (this.options.isScrambled()) {
+            return new HaltonSequence(this.options.getHaltonP(),
+                    this.options.getHaltonQ(), this.options.getScrambleSeed());
+        }
+        return new HaltonSequence(this.options.getHaltonP(), this.options.getHaltonQ());
+    }
+
+    private void generateVertices(Map map) {
+        // Generate vertices over the map, discarding those that intersect with
+        // obstacles.
+        HaltonSequence hs = newHaltonSequence();
+        double[] hs_val = new double[2];
+        long budget = this.options.effectiveSamplingBudget();
+        while (this.coordinates.size() < this.options.getNumVertices()) {
+            if (this.samplesDrawn == budget) {
+                throw samplingFailed(budget);
+            }
+            // Gives the position of the next with coordinates as fractions.
+            hs.nextInto(hs_val);
+            this.samplesDrawn++;
+
+            // Convert the fractional coordinates to a real point on the map.
+            double x = hs_val[0] * map.getWidth();
+            double y = hs_val[1] * map.getHeight();
+
+            // Only points that are kept need their own array.
+            if (!map.inObstacle(x, y)) {
+                this.coordinates.add(new double[] { x, y });
+            }
+        }
+        this.sampleDensity = this.samplesDrawn / (map.getWidth() * map.getHeight());
+    }
+
+    /**
+     * Generates the same vertices as generateVertices, with the sampling and
+     * collision checks spread across a pool.
+     * 
+     * The Halton sequence is split into blocks of consecutive indices. Each
+     * block's points are sampled and checked in parallel, then the free ones
+     * are kept in index order, so the result matches the sequential version.
+     */
+    private void generateVerticesInParallel(Map map, ForkJoinPool pool) {
+        HaltonSequence hs = newHaltonSequence();
+        long start = 0;
+        int numVertices = this.options.getNumVertices();
+        long budget = this.options.effectiveSamplingBudget();
+        while (this.coordinates.size() < numVertices) {
+            if (start == budget) {
+                throw samplingFailed(budget);
+            }
+            // Sample a block somewhat larger than needed, since some of the
+            // points will land in obstacles.
+            int blockSize = (int) Math.min(budget - start,
+                    Math.max(1024, 2 * (numVertices - this.coordinates.size())));
+            double[][] points = new double[blockSize][];
+            long blockStart = start;
+            pool.submit(() -> IntStream.range(0, blockSize)
+                    .parallel()
+                    .forEach(i -> {
+                        double[] point = new double[2];
+                        hs.valueAt(blockStart + i, point);
+                        point[0] *= map.getWidth();
+                        point[1] *= map.getHeight();
+                        if (!map.inObstacle(point[0], point[1])) {
+                            points[i] = point;
+                        }
+                    }))
+                    .join();
+
+            for (int i = 0; i < blockSize && this.coordinates.size() < numVertices; i++) {
+                if (points[i] != null) {
+                    this.coordinates.add(points[i]);
+                    this.samplesDrawn = start + i + 1;
+                }
+            }
+            start += blockSize;
+        }
+        this.sampleDensity = this.samplesDrawn / (map.getWidth() * map.getHeight());
+    }
+
+    /**
+     * Generates vertices from Halton points placed only in the free space of
+     * the map, through a FreeSpaceSampler. With a biased sampling, every
+     * other vertex must also pass a Gaussian or bridge test, and the rest are
+     * spread over free space as usual, so open areas are still covered. A
+     * biased vertex that fails MAX_BIAS_ATTEMPTS tests is placed at the last
+     * free point anyway, which keeps the cost in proportion to the vertex
+     * count on maps without narrow passages.
+     * 
+     * @param map the map to place vertices on
+     * @param r   the maximum distance between neighbors, which scales the
+     *            bias tests
+     */
+    private void generateVerticesInFreeSpace(Map map, double r) {
+        int numVertices = this.options.getNumVertices();
+        // Cells scale with the vertex count, so placing each vertex costs
+        // about the same however the map is filled.
+        int cells = (int) Math.max(1024, Math.min(1 << 22, 16L * numVertices));
+        FreeSpaceSampler sampler = new FreeSpaceSampler(map, cells);
+        if (sampler.numCells() == 0 && numVertices > 0) {
+            throw new IllegalStateException("The map has no free space to sample");
+        }
+
+        GraphOptions.Sampling sampling = this.options.getSampling();
+        HaltonSequence hs = newHaltonSequence();
+        // Further dimensions for the direction and length of bias tests.
+        VanDerCorput directions = new VanDerCorput(5);
+        VanDerCorput lengths = new VanDerCorput(7);
+        double[] hs_val = new double[2];
+        double[] point = new double[2];
+        long budget = this.options.effectiveSamplingBudget();
+        long free = 0;
+        int biasAttempts = 0;
+        while (this.coordinates.size() < numVertices) {
+            if (this.samplesDrawn == budget) {
+                throw samplingFailed(budget);
+            }
+            hs.nextInto(hs_val);
+            this.samplesDrawn++;
+            if (!sampler.sampleInto(hs_val[0], hs_val[1], point)) {
+                continue;
+            }
+            free++;
+
+            if (sampling != GraphOptions.Sampling.FREE_SPACE && this.coordinates.size() % 2 == 1
+                    && ++biasAttempts < MAX_BIAS_ATTEMPTS) {
+                double direction = 2 * Math.PI * directions.next();
+                double dx = Math.cos(direction);
+                double dy = Math.sin(direction);
+                if (sampling == GraphOptions.Sampling.GAUSSIAN) {
+                    // A two dimensional normal offset with deviation r/2.
+                    double length = r / 2 * Math.sqrt(-2 * Math.log(1 - lengths.next()));
+                    if (!blockedOrOutside(map, point[0] + length * dx, point[1] + length * dy)) {
+                        continue;
+                    }
+                } else {
+                    dx *= r / 2;
+                    dy *= r / 2;
+                    if (!blockedOrOutside(map, point[0] - dx, point[1] - dy)
+                            || !blockedOrOutside(map, point[0] + dx, point[1] + dy)) {
+                        continue;
+                    }
+                }
+            }
+            this.coordinates.add(new double[] { point[0], point[1] });
+            biasAttempts = 0;
+        }
+        // The fraction of points that were free estimates how much of the
+        // sampled cells is free.
+        double freeArea = free == 0 ? 0 : sampler.area() * free / this.samplesDrawn;
+        this.sampleDensity = freeArea == 0 ? 0 : numVertices / freeArea;
+    }
+
+    /**
+     * @return whether (x, y) is in an obstacle or off the map, whose border
+     *         counts as a wall for the bias tests
+     */
+    private static boolean blockedOrOutside(Map map, double x, double y) {
+        return x < 0 || y < 0 || x > map.getWidth() || y > map.getHeight()
+                || map.inObstacle(x, y);
+    }
+
+    private IllegalStateException samplingFailed(long budget) {
+        return new IllegalStateException("Found only " + this.coordinates.size() + " of "
+                + this.options.getNumVertices() + " vertices in " + budget
+                + " samples; the map may have too little free space");
+    }
+
+    /**
+     * Evaluates whether an edge between v1, v2 on map would pass through any
+     * obstacles.
+     * 
+     * @param v1  the coordinates of the first vertex
+     * @param v2  the coordinates of the second vertex
+     * @param map the map the edge will exist in
+     * @return whether the edge
+     */
+    public boolean edgeIsValid(double[] v1, double[] v2, Map map) {
+        if (this.recorder == null) {
+            return edgeIsValid(v1[0], v1[1], v2[0], v2[1], map, this.options.getEdgeCheck(), null);
+        }
+        long start = System.nanoTime();
+        boolean valid = edgeIsValid(v1[0], v1[1], v2[0], v2[1], map,
+                this.options.getEdgeCheck(), this.recorder);
+        this.recorder.edgeCheckNanos.add(System.nanoTime() - start);
+        this.recorder.edgeChecks.increment();
+        if (!valid) {
+            this.recorder.edgesRejected.increment();
+        }
+        return valid;
+    }
+
+    /**
+     * @param v1        the coordinates of the first vertex
+     * @param v2        the coordinates of the second vertex
+     * @param map       the map the edge will exist in
+     * @param edgeCheck how to check the edge
+     * @return whether the edge avoids all obstacles
+     */
+    static boolean edgeIsValid(double[] v1, double[] v2, Map map, GraphOptions.EdgeCheck edgeCheck) {
+        return edgeIsValid(v1[0], v1[1], v2[0], v2[1], map, edgeCheck, null);
+    }
+
+    /**
+     * Checks the edge from (x1, y1) to (x2, y2) without allocating.
+     * 
+     * @param edgeCheck how to check the edge
+     * @return whether the edge avoids all obstacles
+     */
+    static boolean edgeIsValid(double x1, double y1, double x2, double y2, Map map,
+            GraphOptions.EdgeCheck edgeCheck) {
+        return edgeIsValid(x1, y1, x2, y2, map, edgeCheck, null);
+    }
+
+    /**
+     * @param recorder counts the probes made, or null
+     */
+    private static boolean edgeIsValid(double x1, double y1, double x2, double y2, Map map,
+            GraphOptions.EdgeCheck edgeCheck, BuildRecorder recorder) {
+        if (edgeCheck == GraphOptions.EdgeCheck.CLEARANCE && map.hasClearance()) {
+            return traceEdge(x1, y1, x2, y2, map, recorder);
+        }
+        if (edgeCheck != GraphOptions.EdgeCheck.SAMPLED) {
+            if (recorder != null) {
+                recorder.probes.increment();
+            }
+            return !map.segmentBlocked(x1, y1, x2, y2);
+        }
+
+        // Van der Corput sequence will supply values to check between the
+        // ends. Elements are computed by index so that nothing is allocated.
+        long vdc_index = 0;
+
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double total_distance = Math.sqrt(dx * dx + dy * dy);
+        double next_pos = VanDerCorput.radicalInverse(vdc_index++, EDGE_CHECK_BASE);
+
+        // Continue checking points along the edge until the edge has been
+        // split into pieces of at most EDGE_CHECK_PRECISION size.
+        while (next_pos * total_distance < total_distance - EDGE_CHECK_PRECISION) {
+
+            if (map.inObstacle(x1 + dx * next_pos, y1 + dy * next_pos)) {
+                if (recorder != null) {
+                    recorder.probes.add(vdc_index);
+                }
+                return false;
+            }
+
+            next_pos = VanDerCorput.radicalInverse(vdc_index++, EDGE_CHECK_BASE);
+        }
+
+        if (recorder != null) {
+            recorder.probes.add(vdc_index - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Checks an edge by sphere tracing through the map's clearance field:
+     * from a point with clearance d, the next d along the edge is free. The
+     * edge is traced in from both ends until the clearance gets too small to
+     * make progress, and only the part between is intersected with the
+     * obstacles exactly, so the result matches an exact check.
+     */
+    private static boolean traceEdge(double x1, double y1, double x2, double y2, Map map,
+            BuildRecorder recorder) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double length = Math.sqrt(dx * dx + dy * dy);
+        double minStep = map.getClearanceCellSize() / 2;
+        long probes = 0;
+
+        double lo = 0;
+        while (lo < length) {
+            double d = map.clearance(x1 + dx * (lo / length), y1 + dy * (lo / length));
+            probes++;
+            if (d < minStep) {
+                break;
+            }
+            lo += d;
+        }
+        double hi = length;
+        while (hi > lo) {
+            double d = map.clearance(x1 + dx * (hi / length), y1 + dy * (hi / length));
+            probes++;
+            if (d < minStep) {
+                break;
+            }
+            hi -= d;
+        }
+
+        boolean valid = true;
+        if (hi > lo || length == 0) {
+            probes++;
+            valid = length == 0
+                    ? !map.segmentBlocked(x1, y1, x2, y2)
+                    : !map.segmentBlocked(
+                            x1 + dx * (lo / length), y1 + dy * (lo / length),
+                            x1 + dx * (hi / length), y1 + dy * (hi / length));
+        }
+        if (recorder != null) {
+            recorder.probes.add(probes);
+        }
+        return valid;
+    }
+
+    /**
+     * Update the neighbors list associated with the provided point such that
+     * it contains the k closest points within a range of the point that aren't
+     * blocked by obstacles.
+     * 
+     * @param currPoint the index of the point within points to compare others to
+     * @param k         the number of close points to return
+     * @param r         the maximum distance away a neighbor can be from the point
+     * @param map       a map of all obstacles within the space
+     */
+    private void updateNeighbors(
+            int currPoint,
+            int k,
+            double r,
+            Map map) {
+        // There's no work to do if this point already has k neighbors.
+        if (this.neighbors.get(currPoint).size() == k)
+            return;
+
+        double[] currCoords = this.coordinates.get(currPoint);
+        long start = this.recorder != null ? System.nanoTime() : 0;
+        if (this.index != null) {
+            // The index yields every in-range vertex closest first, ties
+            // broken by index, which is the order the batches below visit
+            // them in.
+            this.index.withinRadius(
+                    currCoords[0], currCoords[1], r, currPoint, this.inRange);
+            if (this.recorder != null) {
+                this.recorder.searchNanos.add(System.nanoTime() - start);
+            }
+            List<Integer> currNeighbors = this.neighbors.get(currPoint);
+            for (int i = 0; i < this.inRange.size() && currNeighbors.size() < k; i++) {
+                connectIfValid(currPoint, this.inRange.get(i), map);
+            }
+            return;
+        }
+
+        // Without an index, collect the in-range candidates in one pass,
+        // then take the closest from them in batches of however many edges
+        // are still missing. A batch only falls short of filling the list
+        // when some of its edges are blocked, and the next batch starts after
+        // the last candidate tried. Ties are broken by index, as the index
+        // does.
+        // k may be as large as Integer.MAX_VALUE for "every vertex in
+        // range", so the heap is sized by what it can actually hold.
+        if (this.closest == null) {
+            this.closest = new TopKHeap(Math.min(k, this.numVertices()));
+            this.candidateIds = new int[16];
+            this.candidateDistances = new double[16];
+        }
+        double r2 = r * r;
+        int numCandidates = 0;
+        for (int i = 0; i < this.numVertices(); i++) {
+            if (i == currPoint) { // Don't add the reference point itself.
+                continue;
+            }
+            double d2 = distanceSquared(currCoords, this.coordinates.get(i));
+            if (d2 <= r2) {
+                if (numCandidates == this.candidateIds.length) {
+                    this.candidateIds = Arrays.copyOf(this.candidateIds, 2 * numCandidates);
+                    this.candidateDistances = Arrays.copyOf(this.candidateDistances,
+                            2 * numCandidates);
+                }
+                this.candidateIds[numCandidates] = i;
+                this.candidateDistances[numCandidates++] = d2;
+            }
+        }
+        if (this.recorder != null) {
+            this.recorder.searchNanos.add(System.nanoTime() - start);
+        }
+
+        List<Integer> currNeighbors = this.neighbors.get(currPoint);
+        double afterDistance = -1;
+        int afterId = -1;
+        while (currNeighbors.size() < k) {
+            int wanted = k - currNeighbors.size();
+            start = this.recorder != null ? System.nanoTime() : 0;
+            this.closest.reset(Math.min(wanted, numCandidates));
+            for (int c = 0; c < numCandidates; c++) {
+                double d2 = this.candidateDistances[c];
+                int id = this.candidateIds[c];
+                if (d2 > afterDistance || (d2 == afterDistance && id > afterId)) {
+                    this.closest.offer(id, d2);
+                }
+            }
+            this.closest.sort();
+            if (this.recorder != null) {
+                this.recorder.searchNanos.add(System.nanoTime() - start);
+            }
+            for (int j = 0; j < this.closest.size(); j++) {
+                connectIfValid(currPoint, this.closest.id(j), map);
+            }
+            if (this.closest.size() < wanted) {
+                break; // Every in-range candidate has been tried.
+            }
+            afterDistance = this.closest.key(wanted - 1);
+            afterId = this.closest.id(wanted - 1);
+        }
+    }
+
+    /**
+     * Adds an edge between two vertices if it doesn't pass through any
+     * obstacle, or unconditionally when edges are checked lazily.
+     */
+    private void connectIfValid(int currPoint, int otherPoint, Map map) {
+        // As long as the edge is valid
+        // add the nodes to each others' neighbors lists.
+        // TODO: restrict the in-degree of points?
+        if (this.options.useLazyEdges() || edgeIsValid(this.coordinates.get(currPoint),
+                this.coordinates.get(otherPoint), map)) {
+            this.neighbors.get(currPoint).add(otherPoint);
+            this.neighbors.get(otherPoint).add(currPoint);
+        }
+    }
+
+    /**
+     * Updates the graph after an obstacle was added to the map. Vertices
+     * now inside the obstacle are removed, edges now passing through it are
+     * dropped, and the vertices that lost edges are reconnected. Only
+     * vertices within r of the obstacle are visited.
+     * 
+     * Removing a vertex moves the last vertex into its index.
+     * 
+     * @param map    the map, which already contains the new obstacle
+     * @param bounds the new obstacle's bounds as {x, y, width, height}
+     */
+    public void obstacleAdded(Map map, double[] bounds) {
+        requireAdjacencyLists();
+        ensureVertexGrid(map);
+        double r = this.parameters.getR();
+        int[] affected = verticesNear(bounds, r);
+
+        // Drop edges that now collide, and collect vertices now in collision.
+        List<Integer> blocked = new ArrayList<>();
+        for (int v : affected) {
+            double[] vCoords = this.coordinates.get(v);
+            if (map.inObstacle(vCoords[0], vCoords[1])) {
+                blocked.add(v);
+                continue;
+            }
+            List<Integer> vNeighbors = this.neighbors.get(v);
+            for (int j = vNeighbors.size() - 1; j >= 0; j--) {
+                int u = vNeighbors.get(j);
+                if (!edgeIsValid(vCoords, this.coordinates.get(u), map)) {
+                    disconnect(v, u);
+                    j = Math.min(j, vNeighbors.size());
+                }
+            }
+        }
+
+        // Remove from the highest index down, so that a vertex moved into a
+        // removed slot has already been checked.
+        blocked.sort(Collections.reverseOrder());
+        for (int v : blocked) {
+            removeVertex(v);
+        }
+
+        reconnect(map, verticesNear(bounds, r));
+        this.repaired = true;
+    }
+
+    /**
+     * Updates the graph after an obstacle was removed from the map. The
+     * freed area is sampled at the graph's original density, and the new
+     * vertices and those around the area are connected. Only vertices within
+     * r of the freed area are visited.
+     * 
+     * @param map    the map, which no longer contains the obstacle
+     * @param bounds the removed obstacle's bounds as {x, y, width, height}
+     */
+    public void obstacleRemoved(Map map, double[] bounds) {
+        requireAdjacencyLists();
+        double x0 = Math.max(0, bounds[0]);
+        double y0 = Math.max(0, bounds[1]);
+        double x1 = Math.min(map.getWidth(), bounds[0] + bounds[2]);
+        double y1 = Math.min(map.getHeight(), bounds[1] + bounds[3]);
+        long count = x1 > x0 && y1 > y0
+                ? Math.round(this.sampleDensity * (x1 - x0) * (y1 - y0))
+                : 0;
+
+        ensureVertexGrid(map);
+        HaltonSequence hs = newHaltonSequence();
+        double[] hs_val = new double[2];
+        // Index 0 is the area's corner, which lies on the obstacle's edge.
+        for (long i = 1; i <= count; i++) {
+            hs.valueAt(i, hs_val);
+            double x = x0 + hs_val[0] * (x1 - x0);
+            double y = y0 + hs_val[1] * (y1 - y0);
+            if (!map.inObstacle(x, y)) {
+                addVertex(x, y);
+            }
+        }
+
+        reconnect(map, verticesNear(bounds, this.parameters.getR()));
+        this.repaired = true;
+    }
+
+    private void requireAdjacencyLists() {
+        if (this.neighbors == null) {
+            throw new IllegalStateException("Incremental repair needs adjacency lists, not compact storage");
+        }
+        // The compact copy no longer matches once the lists change.
+        this.compactGraph = null;
+    }
+
+    private void ensureVertexGrid(Map map) {
+        if (this.vertexGrid != null) {
+            return;
+        }
+        double r = Math.max(this.parameters.getR(), 1e-9);
+        int cols = (int) Math.max(1, Math.min(1024, Math.ceil(map.getWidth() / r)));
+        int rows = (int) Math.max(1, Math.min(1024, Math.ceil(map.getHeight() / r)));
+        this.vertexGrid = new ObstacleGrid(map.getWidth(), map.getHeight(), cols, rows);
+        for (int v = 0; v < this.coordinates.size(); v++) {
+            double[] p = this.coordinates.get(v);
+            this.vertexGrid.insert(v, p[0], p[1], 0, 0);
+        }
+    }
+
+    /**
+     * @return the vertices within margin of the rectangle {x, y, w, h}, in
+     *         increasing order
+     */
+    private int[] verticesNear(double[] bounds, double margin) {
+        double minX = bounds[0] - margin, maxX = bounds[0] + bounds[2] + margin;
+        double minY = bounds[1] - margin, maxY = bounds[1] + bounds[3] + margin;
+        List<Integer> found = new ArrayList<>();
+        for (int row = this.vertexGrid.rowOf(minY); row <= this.vertexGrid.rowOf(maxY); row++) {
+            for (int col = this.vertexGrid.colOf(minX); col <= this.vertexGrid.colOf(maxX); col++) {
+                int cell = this.vertexGrid.cellAt(col, row);
+                for (int i = 0; i < this.vertexGrid.bucketSize(cell); i++) {
+                    int v = this.vertexGrid.bucketEntry(cell, i);
+                    double[] p = this.coordinates.get(v);
+                    if (minX <= p[0] && p[0] <= maxX && minY <= p[1] && p[1] <= maxY) {
+                        found.add(v);
+                    }
+                }
+            }
+        }
+        return found.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    /**
+     * Gives each of the vertices with fewer than k neighbors new edges to the
+     * closest in-range vertices it isn't already connected to.
+     */
+    private void reconnect(Map map, int[] vertices) {
+        int k = this.parameters.getK();
+        double r = this.parameters.getR();
+        for (int v : vertices) {
+            List<Integer> vNeighbors = this.neighbors.get(v);
+            if (vNeighbors.size() >= k) {
+                continue;
+            }
+            double[] p = this.coordinates.get(v);
+            int[] candidates = verticesNear(new double[] { p[0], p[1], 0, 0 }, r);
+            Integer[] sorted = new Integer[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                sorted[i] = candidates[i];
+            }
+            Arrays.sort(sorted, Comparator
+                    .comparingDouble((Integer u) -> distanceSquared(p, this.coordinates.get(u)))
+                    .thenComparingInt(u -> u));
+            for (int u : sorted) {
+                if (vNeighbors.size() >= k) {
+                    break;
+                }
+                if (u == v || vNeighbors.contains(u) || distance(p, this.coordinates.get(u)) > r) {
+                    continue;
+                }
+                connectIfValid(v, u, map);
+            }
+        }
+    }
+
+    private void addVertex(double x, double y) {
+        int v = this.coordinates.size();
+        this.coordinates.add(new double[] { x, y });
+        this.neighbors.add(new ArrayList<>());
+        this.vertexGrid.insert(v, x, y, 0, 0);
+    }
+
+    /**
+     * Removes a vertex and its edges, moving the last vertex into its index.
+     */
+    private void removeVertex(int v) {
+        for (int u : new ArrayList<>(this.neighbors.get(v))) {
+            disconnect(v, u);
+        }
+        double[] p = this.coordinates.get(v);
+        this.vertexGrid.remove(v, p[0], p[1], 0, 0);
+
+        int last = this.coordinates.size() - 1;
+        if (v != last) {
+            double[] lastCoords = this.coordinates.get(last);
+            List<Integer> lastNeighbors = this.neighbors.get(last);
+            for (int u : lastNeighbors) {
+                List<Integer> uNeighbors = this.neighbors.get(u);
+                for (int j = 0; j < uNeighbors.size(); j++) {
+                    if (uNeighbors.get(j) == last) {
+                        uNeighbors.set(j, v);
+                    }
+                }
+            }
+            this.vertexGrid.remove(last, lastCoords[0], lastCoords[1], 0, 0);
+            this.vertexGrid.insert(v, lastCoords[0], lastCoords[1], 0, 0);
+            this.coordinates.set(v, lastCoords);
+            this.neighbors.set(v, lastNeighbors);
+        }
+        this.coordinates.remove(last);
+        this.neighbors.remove(last);
+    }
+
+    /**
+     * Removes every copy of the edge between v and u.
+     */
+    private void disconnect(int v, int u) {
+        this.neighbors.get(v).removeIf(n -> n == u);
+        this.neighbors.get(u).removeIf(n -> n == v);
+    }
+
+    public double distance(double[] p1, double[] p2) {
+        return Math.sqrt(distanceSquared(p1, p2));
+    }
+
+    /**
+     * Cheaper than distance when only comparing distances, since it skips
+     * the square root.
+     */
+    public double distanceSquared(double[] p1, double[] p2) {
+        double dx = p1[0] - p2[0];
+        double dy = p1[1] - p2[1];
+        return dx * dx + dy * dy;
+    }
+}
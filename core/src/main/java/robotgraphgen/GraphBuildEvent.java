@@ -0,0 +1,43 @@
+package robotgraphgen;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event spanning a whole Graph build. The counters are only
+ * filled in when the graph collects metrics.
+ */
+@Name("robotgraphgen.GraphBuild")
+@Label("Roadmap Build")
+@Category("RobotGraphGen")
+@Description("Construction of a roadmap Graph")
+final class GraphBuildEvent extends Event {
+    @Label("k")
+    int k;
+
+    @Label("r")
+    double r;
+
+    @Label("Vertices")
+    int vertices;
+
+    @Label("Edges")
+    @Description("Undirected edges in the finished graph")
+    long edges;
+
+    @Label("Samples Drawn")
+    long samplesDrawn;
+
+    @Label("Edge Checks")
+    long edgeChecks;
+
+    @Label("Edges Rejected")
+    long edgesRejected;
+
+    @Label("Probes")
+    @Description("Points along edges tested against the map")
+    long probes;
+}
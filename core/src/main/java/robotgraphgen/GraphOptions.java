@@ -0,0 +1,357 @@
+package robotgraphgen;
+
+/**
+ * Settings controlling how a Graph is constructed. The defaults reproduce the
+ * original brute force construction.
+ */
+public class GraphOptions {
+    /**
+     * Ways of checking whether an edge passes through an obstacle.
+     */
+    public enum EdgeCheck {
+        /** Probe points along the edge at EDGE_CHECK_PRECISION spacing. */
+        SAMPLED,
+        /** Intersect the edge with each obstacle exactly. */
+        EXACT,
+        /**
+         * Skip along the edge by the map's clearance at each point, and only
+         * intersect the parts near obstacles exactly. Gives the same results
+         * as EXACT, and falls back to it on maps without a clearance field.
+         */
+        CLEARANCE
+    }
+
+    /**
+     * Ways of placing vertices in free space. The biased ways give up on a
+     * vertex's test after a few dozen tries and place it anyway, so they
+     * still finish on maps with nothing to favor.
+     */
+    public enum Sampling {
+        /** Halton points over the whole map, discarding those in obstacles. */
+        UNIFORM,
+        /**
+         * Halton points spread over only the free part of the map, so the
+         * number drawn depends on the vertex count rather than on how much of
+         * the map is blocked.
+         */
+        FREE_SPACE,
+        /**
+         * Half the vertices as FREE_SPACE, and half kept only if a point at a
+         * normally distributed offset from them, with deviation r/2, is
+         * blocked. Favors the edges of obstacles.
+         */
+        GAUSSIAN,
+        /**
+         * Half the vertices as FREE_SPACE, and half kept only if they are the
+         * midpoint of a segment of length r whose ends are both blocked.
+         * Favors narrow passages.
+         */
+        BRIDGE
+    }
+
+    public static final int DEFAULT_NUM_VERTICES = 150;
+    /** Without an explicit budget, this many samples may be drawn per vertex. */
+    public static final int DEFAULT_SAMPLES_PER_VERTEX = 1000;
+    public static final int DEFAULT_HALTON_P = 2;
+    public static final int DEFAULT_HALTON_Q = 3;
+
+    private int numVertices;
+    private boolean reportUnderConnected;
+    private int haltonP;
+    private int haltonQ;
+    private boolean spatialIndex;
+    private int parallelism;
+    private boolean compactStorage;
+    private boolean edgeWeights;
+    private EdgeCheck edgeCheck;
+    private boolean lazyEdges;
+    private int densifyBudget;
+    private Sampling sampling;
+    private long samplingBudget;
+    private boolean metrics;
+    private boolean scrambled;
+    private long scrambleSeed;
+
+    public GraphOptions() {
+        this.numVertices = DEFAULT_NUM_VERTICES;
+        this.reportUnderConnected = true;
+        this.haltonP = DEFAULT_HALTON_P;
+        this.haltonQ = DEFAULT_HALTON_Q;
+        this.spatialIndex = false;
+        this.parallelism = 1;
+        this.compactStorage = false;
+        this.edgeWeights = false;
+        this.edgeCheck = EdgeCheck.SAMPLED;
+        this.lazyEdges = false;
+        this.densifyBudget = 0;
+        this.sampling = Sampling.UNIFORM;
+        this.samplingBudget = 0;
+        this.metrics = false;
+        this.scrambled = false;
+    }
+
+    /**
+     * @param other the options to copy
+     */
+    public GraphOptions(GraphOptions other) {
+        this.numVertices = other.numVertices;
+        this.reportUnderConnected = other.reportUnderConnected;
+        this.haltonP = other.haltonP;
+        this.haltonQ = other.haltonQ;
+        this.spatialIndex = other.spatialIndex;
+        this.parallelism = other.parallelism;
+        this.compactStorage = other.compactStorage;
+        this.edgeWeights = other.edgeWeights;
+        this.edgeCheck = other.edgeCheck;
+        this.lazyEdges = other.lazyEdges;
+        this.densifyBudget = other.densifyBudget;
+        this.sampling = other.sampling;
+        this.samplingBudget = other.samplingBudget;
+        this.metrics = other.metrics;
+        this.scrambled = other.scrambled;
+        this.scrambleSeed = other.scrambleSeed;
+    }
+
+    public int getNumVertices() {
+        return numVertices;
+    }
+
+    /**
+     * @param numVertices the number of vertices to sample in free space
+     * @return these options
+     */
+    public GraphOptions numVertices(int numVertices) {
+        if (numVertices < 0) {
+            throw new IllegalArgumentException("Vertex count can't be negative");
+        }
+        this.numVertices = numVertices;
+        return this;
+    }
+
+    public boolean reportUnderConnected() {
+        return reportUnderConnected;
+    }
+
+    /**
+     * @param reportUnderConnected whether to print the coordinates of vertices
+     *                             left with fewer than k neighbors
+     * @return these options
+     */
+    public GraphOptions reportUnderConnected(boolean reportUnderConnected) {
+        this.reportUnderConnected = reportUnderConnected;
+        return this;
+    }
+
+    public int getHaltonP() {
+        return haltonP;
+    }
+
+    public int getHaltonQ() {
+        return haltonQ;
+    }
+
+    /**
+     * @param p the Halton sequence base for x coordinates
+     * @param q the Halton sequence base for y coordinates
+     * @return these options
+     */
+    public GraphOptions haltonBases(int p, int q) {
+        if (p < 2 || q < 2) {
+            throw new IllegalArgumentException("Halton bases must be at least 2");
+        }
+        this.haltonP = p;
+        this.haltonQ = q;
+        return this;
+    }
+
+    public boolean useSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * @param spatialIndex whether to find neighbor candidates with a k-d tree
+     *                     instead of sorting every other vertex
+     * @return these options
+     */
+    public GraphOptions spatialIndex(boolean spatialIndex) {
+        this.spatialIndex = spatialIndex;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism the number of threads to search for and collision
+     *                    check edges with; 1 builds on the calling thread
+     * @return these options
+     */
+    public GraphOptions parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public boolean useCompactStorage() {
+        return compactStorage;
+    }
+
+    /**
+     * @param compactStorage whether the graph should keep only a CompactGraph
+     *                       once built, releasing its adjacency lists
+     * @return these options
+     */
+    public GraphOptions compactStorage(boolean compactStorage) {
+        this.compactStorage = compactStorage;
+        return this;
+    }
+
+    public boolean storeEdgeWeights() {
+        return edgeWeights;
+    }
+
+    /**
+     * @param edgeWeights whether compact storage should include the length of
+     *                    each edge
+     * @return these options
+     */
+    public GraphOptions edgeWeights(boolean edgeWeights) {
+        this.edgeWeights = edgeWeights;
+        return this;
+    }
+
+    public EdgeCheck getEdgeCheck() {
+        return edgeCheck;
+    }
+
+    /**
+     * @param edgeCheck how to check edges for collisions with obstacles
+     * @return these options
+     */
+    public GraphOptions edgeCheck(EdgeCheck edgeCheck) {
+        this.edgeCheck = edgeCheck;
+        return this;
+    }
+
+    public boolean useLazyEdges() {
+        return lazyEdges;
+    }
+
+    /**
+     * Connects each vertex to its closest in-range vertices without checking
+     * the edges for collisions. Edges are instead checked, once each, when a
+     * search first uses them through a LazyEdges.
+     * 
+     * @param lazyEdges whether to defer edge collision checks to query time
+     * @return these options
+     */
+    public GraphOptions lazyEdges(boolean lazyEdges) {
+        this.lazyEdges = lazyEdges;
+        return this;
+    }
+
+    public int getDensifyBudget() {
+        return densifyBudget;
+    }
+
+    /**
+     * Follows construction with Graph.densify, to join the roadmap's
+     * components without sampling the whole map more densely.
+     * 
+     * @param densifyBudget the most extra samples to draw, or 0 not to
+     *                      densify
+     * @return these options
+     */
+    public GraphOptions densifyBudget(int densifyBudget) {
+        if (densifyBudget < 0) {
+            throw new IllegalArgumentException("Densify budget can't be negative");
+        }
+        this.densifyBudget = densifyBudget;
+        return this;
+    }
+
+    public Sampling getSampling() {
+        return sampling;
+    }
+
+    /**
+     * @param sampling how to place vertices in free space
+     * @return these options
+     */
+    public GraphOptions sampling(Sampling sampling) {
+        this.sampling = sampling;
+        return this;
+    }
+
+    public long getSamplingBudget() {
+        return samplingBudget;
+    }
+
+    /**
+     * Limits how many points may be drawn while placing vertices. A build
+     * that can't find enough free points within the budget fails rather than
+     * sampling a nearly or fully blocked map forever.
+     * 
+     * @param samplingBudget the most points to draw, or 0 for
+     *                       DEFAULT_SAMPLES_PER_VERTEX per vertex
+     * @return these options
+     */
+    public GraphOptions samplingBudget(long samplingBudget) {
+        if (samplingBudget < 0) {
+            throw new IllegalArgumentException("Sampling budget can't be negative");
+        }
+        this.samplingBudget = samplingBudget;
+        return this;
+    }
+
+    /**
+     * @return the sampling budget, with the default applied
+     */
+    long effectiveSamplingBudget() {
+        if (this.samplingBudget > 0) {
+            return this.samplingBudget;
+        }
+        return Math.max(DEFAULT_SAMPLES_PER_VERTEX, (long) DEFAULT_SAMPLES_PER_VERTEX * this.numVertices);
+    }
+
+    public boolean collectMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Records phase timings and counters while building, for
+     * Graph.getBuildMetrics. Off by default, since timing every edge check
+     * costs a little.
+     * 
+     * @param metrics whether to collect build metrics
+     * @return these options
+     */
+    public GraphOptions metrics(boolean metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public boolean isScrambled() {
+        return scrambled;
+    }
+
+    public long getScrambleSeed() {
+        return scrambleSeed;
+    }
+
+    /**
+     * Samples vertices from a scrambled Halton sequence instead of the plain
+     * one.
+     * 
+     * @param seed the seed choosing the scrambling
+     * @return these options
+     */
+    public GraphOptions scrambleSeed(long seed) {
+        this.scrambled = true;
+        this.scrambleSeed = seed;
+        return this;
+    }
+}
@@ -0,0 +1,67 @@
+package robotgraphgen;
+
+public class HaltonSequence {
+    private VanDerCorput x_gen;
+    private VanDerCorput y_gen;
+
+    public HaltonSequence(int p, int q) {
+        this.x_gen = new VanDerCorput(p);
+        this.y_gen = new VanDerCorput(q);
+    }
+
+    /**
+     * Creates a sequence whose coordinates are scrambled Van der Corput
+     * sequences.
+     * 
+     * @param p    the base of the x coordinates
+     * @param q    the base of the y coordinates
+     * @param seed the seed choosing the scrambling
+     */
+    public HaltonSequence(int p, int q, long seed) {
+        this.x_gen = new VanDerCorput(p, seed);
+        this.y_gen = new VanDerCorput(q, ~seed);
+    }
+
+    public double[] next() {
+        return new double[]{
+            this.x_gen.next(), 
+            this.y_gen.next()
+        };
+    }
+
+    /**
+     * Writes the next point into out instead of allocating a new array.
+     * 
+     * @param out an array of length at least 2 to receive {x, y}
+     */
+    public void nextInto(double[] out) {
+        out[0] = this.x_gen.next();
+        out[1] = this.y_gen.next();
+    }
+
+    /**
+     * Writes the index-th point of the sequence into out. This doesn't move
+     * the sequence, so it's safe to call from several threads at once.
+     * 
+     * @param index the position of the point in the sequence
+     * @param out   an array of length at least 2 to receive {x, y}
+     */
+    public void valueAt(long index, double[] out) {
+        out[0] = this.x_gen.valueAt(index);
+        out[1] = this.y_gen.valueAt(index);
+    }
+
+    /**
+     * Moves the sequence so the next call to next() returns the index-th
+     * point.
+     */
+    public void skipTo(long index) {
+        this.x_gen.skipTo(index);
+        this.y_gen.skipTo(index);
+    }
+
+    public void reset() {
+        this.x_gen.reset();
+        this.y_gen.reset();
+    }
+}
@@ -0,0 +1,128 @@
+package robotgraphgen;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int ids in [0, capacity) keyed by doubles, which
+ * tracks where each id sits so its key can be decreased in place. Searches
+ * keep one per thread and clear it between queries, so the open set never
+ * allocates.
+ */
+final class IndexedMinHeap {
+    private final int[] heap;
+    // The position of each id in heap, or -1 if it isn't queued.
+    private final int[] position;
+    private final double[] keys;
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.position = new int[capacity];
+        this.keys = new double[capacity];
+        Arrays.fill(this.position, -1);
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean contains(int id) {
+        return this.position[id] >= 0;
+    }
+
+    /**
+     * Queues id with the given key, or lowers its key if it's already queued
+     * with a larger one.
+     *
+     * @return whether the heap changed
+     */
+    boolean offer(int id, double key) {
+        int i = this.position[id];
+        if (i < 0) {
+            i = this.size++;
+            this.heap[i] = id;
+            this.position[id] = i;
+        } else if (key >= this.keys[id]) {
+            return false;
+        }
+        this.keys[id] = key;
+        siftUp(i);
+        return true;
+    }
+
+    /**
+     * @return the key of the id poll would return next
+     */
+    double peekKey() {
+        return this.keys[this.heap[0]];
+    }
+
+    /**
+     * Removes and returns the id with the smallest key.
+     */
+    int poll() {
+        int top = this.heap[0];
+        this.position[top] = -1;
+        int last = this.heap[--this.size];
+        if (this.size > 0) {
+            this.heap[0] = last;
+            this.position[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Empties the heap in time proportional to its size.
+     */
+    void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.position[this.heap[i]] = -1;
+        }
+        this.size = 0;
+    }
+
+    private void siftUp(int i) {
+        int id = this.heap[i];
+        double key = this.keys[id];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int parentId = this.heap[parent];
+            if (this.keys[parentId] <= key) {
+                break;
+            }
+            this.heap[i] = parentId;
+            this.position[parentId] = i;
+            i = parent;
+        }
+        this.heap[i] = id;
+        this.position[id] = i;
+    }
+
+    private void siftDown(int i) {
+        int id = this.heap[i];
+        double key = this.keys[id];
+        int half = this.size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int childId = this.heap[child];
+            int right = child + 1;
+            if (right < this.size && this.keys[this.heap[right]] < this.keys[childId]) {
+                child = right;
+                childId = this.heap[right];
+            }
+            if (key <= this.keys[childId]) {
+                break;
+            }
+            this.heap[i] = childId;
+            this.position[childId] = i;
+            i = child;
+        }
+        this.heap[i] = id;
+        this.position[id] = i;
+    }
+}
@@ -0,0 +1,363 @@
+package robotgraphgen;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A static two dimensional k-d tree over a fixed set of points. The tree is
+ * stored implicitly: the points are reordered so that every subrange
+ * [lo, hi) of the index array is a node whose median element splits the rest
+ * of the range along the node's axis.
+ */
+public class KdTree {
+    // Point indices, reordered into implicit tree layout.
+    private final int[] order;
+    // The coordinates of order[i] at index i, so a subtree's points sit
+    // together in memory and searches don't jump around the arrays.
+    private final double[] xs;
+    private final double[] ys;
+
+    /**
+     * Builds the tree in O(n log n) expected time.
+     *
+     * @param points the points to index, each given as {x, y}
+     */
+    public KdTree(List<double[]> points) {
+        this(xsOf(points), ysOf(points));
+    }
+
+    /**
+     * Builds the tree over the vertices of a compact graph, so that point
+     * indices are vertex indices.
+     *
+     * @param graph the graph whose vertices to index
+     */
+    public KdTree(CompactGraph graph) {
+        this(xsOf(graph), ysOf(graph));
+    }
+
+    private KdTree(double[] pointXs, double[] pointYs) {
+        int n = pointXs.length;
+        this.order = new int[n];
+        for (int i = 0; i < n; i++) {
+            this.order[i] = i;
+        }
+        build(pointXs, pointYs, 0, n, 0);
+
+        this.xs = new double[n];
+        this.ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            this.xs[i] = pointXs[this.order[i]];
+            this.ys[i] = pointYs[this.order[i]];
+        }
+    }
+
+    private static double[] xsOf(List<double[]> points) {
+        double[] xs = new double[points.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = points.get(i)[0];
+        }
+        return xs;
+    }
+
+    private static double[] ysOf(List<double[]> points) {
+        double[] ys = new double[points.size()];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = points.get(i)[1];
+        }
+        return ys;
+    }
+
+    private static double[] xsOf(CompactGraph graph) {
+        double[] xs = new double[graph.numVertices()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = graph.x(i);
+        }
+        return xs;
+    }
+
+    private static double[] ysOf(CompactGraph graph) {
+        double[] ys = new double[graph.numVertices()];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = graph.y(i);
+        }
+        return ys;
+    }
+
+    public int size() {
+        return this.order.length;
+    }
+
+    /**
+     * Finds every point within distance r of (x, y).
+     *
+     * @param x       the x coordinate of the query point
+     * @param y       the y coordinate of the query point
+     * @param r       the maximum distance of a returned point
+     * @param exclude the index of a point to leave out of the result, or -1
+     * @return the indices of the points in range, closest first, with ties
+     *         broken by index
+     */
+    public int[] withinRadius(double x, double y, double r, int exclude) {
+        Neighbors results = new Neighbors(16);
+        withinRadius(x, y, r, exclude, results);
+        return results.toArray();
+    }
+
+    /**
+     * Finds every point within distance r of (x, y), reusing the given buffer
+     * so repeated queries don't allocate once it has grown large enough.
+     *
+     * @param x       the x coordinate of the query point
+     * @param y       the y coordinate of the query point
+     * @param r       the maximum distance of a returned point
+     * @param exclude the index of a point to leave out of the result, or -1
+     * @param out     receives the points in range, closest first, with ties
+     *                broken by index
+     */
+    public void withinRadius(double x, double y, double r, int exclude, Neighbors out) {
+        out.clear();
+        searchRadius(0, this.order.length, 0, x, y, r * r, exclude, out);
+        out.sort();
+    }
+
+    /**
+     * Finds the k closest points within distance r of (x, y).
+     *
+     * @param x       the x coordinate of the query point
+     * @param y       the y coordinate of the query point
+     * @param k       the maximum number of points to return
+     * @param r       the maximum distance of a returned point
+     * @param exclude the index of a point to leave out of the result, or -1
+     * @return the indices of at most k points, closest first
+     */
+    public int[] nearest(double x, double y, int k, double r, int exclude) {
+        if (k <= 0) {
+            return new int[0];
+        }
+        Neighbors results = new Neighbors(Math.min(k, this.order.length));
+        searchNearest(0, this.order.length, 0, x, y, k, r * r, exclude, results);
+        results.sort();
+        return results.toArray();
+    }
+
+    private void build(double[] pointXs, double[] pointYs, int lo, int hi, int axis) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(axis == 0 ? pointXs : pointYs, lo, hi - 1, mid);
+        build(pointXs, pointYs, lo, mid, axis ^ 1);
+        build(pointXs, pointYs, mid + 1, hi, axis ^ 1);
+    }
+
+    private void searchRadius(int lo, int hi, int axis, double x, double y,
+            double r2, int exclude, Neighbors results) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int p = this.order[mid];
+        double d2 = distanceSquared(mid, x, y);
+        if (d2 <= r2 && p != exclude) {
+            results.add(p, d2);
+        }
+
+        double delta = axis == 0 ? x - this.xs[mid] : y - this.ys[mid];
+        if (delta <= 0 || delta * delta <= r2) {
+            searchRadius(lo, mid, axis ^ 1, x, y, r2, exclude, results);
+        }
+        if (delta >= 0 || delta * delta <= r2) {
+            searchRadius(mid + 1, hi, axis ^ 1, x, y, r2, exclude, results);
+        }
+    }
+
+    private void searchNearest(int lo, int hi, int axis, double x, double y,
+            int k, double r2, int exclude, Neighbors results) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int p = this.order[mid];
+        double d2 = distanceSquared(mid, x, y);
+        if (d2 <= r2 && p != exclude) {
+            results.offer(p, d2, k);
+        }
+
+        // Descend into the side containing the query first so the bound
+        // tightens as quickly as possible.
+        double delta = axis == 0 ? x - this.xs[mid] : y - this.ys[mid];
+        int nearLo = delta < 0 ? lo : mid + 1;
+        int nearHi = delta < 0 ? mid : hi;
+        int farLo = delta < 0 ? mid + 1 : lo;
+        int farHi = delta < 0 ? hi : mid;
+        searchNearest(nearLo, nearHi, axis ^ 1, x, y, k, r2, exclude, results);
+
+        double bound = results.size == k ? results.maxDistance() : r2;
+        if (delta * delta <= bound) {
+            searchNearest(farLo, farHi, axis ^ 1, x, y, k, r2, exclude, results);
+        }
+    }
+
+    /**
+     * @param i a position in tree layout
+     */
+    private double distanceSquared(int i, double x, double y) {
+        double dx = this.xs[i] - x;
+        double dy = this.ys[i] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Reorders order[lo..hi] (inclusive) so that the element at nth is the
+     * one that would be there if the range were sorted by coordinate.
+     *
+     * @param coordinate each point's coordinate along the split axis
+     */
+    private void select(double[] coordinate, int lo, int hi, int nth) {
+        while (hi > lo) {
+            double pivot = coordinate[this.order[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coordinate[this.order[i]] < pivot)
+                    i++;
+                while (coordinate[this.order[j]] > pivot)
+                    j--;
+                if (i <= j) {
+                    int tmp = this.order[i];
+                    this.order[i] = this.order[j];
+                    this.order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A reusable, growable list of (index, squared distance) pairs holding
+     * the result of a query.
+     */
+    public static class Neighbors {
+        int[] indices;
+        double[] distances;
+        int size;
+
+        public Neighbors(int capacity) {
+            this.indices = new int[Math.max(1, capacity)];
+            this.distances = new double[Math.max(1, capacity)];
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * @return the index of the i-th closest point found
+         */
+        public int get(int i) {
+            return this.indices[i];
+        }
+
+        void clear() {
+            this.size = 0;
+        }
+
+        void add(int index, double d2) {
+            if (this.size == this.indices.length) {
+                this.indices = Arrays.copyOf(this.indices, this.size * 2);
+                this.distances = Arrays.copyOf(this.distances, this.size * 2);
+            }
+            this.indices[this.size] = index;
+            this.distances[this.size] = d2;
+            this.size++;
+        }
+
+        /**
+         * Keeps the pair if it is among the k best seen so far.
+         */
+        void offer(int index, double d2, int k) {
+            if (this.size < k) {
+                add(index, d2);
+                return;
+            }
+            int worst = 0;
+            for (int i = 1; i < this.size; i++) {
+                if (less(worst, i)) {
+                    worst = i;
+                }
+            }
+            if (d2 < this.distances[worst]
+                    || (d2 == this.distances[worst] && index < this.indices[worst])) {
+                this.indices[worst] = index;
+                this.distances[worst] = d2;
+            }
+        }
+
+        double maxDistance() {
+            double max = 0;
+            for (int i = 0; i < this.size; i++) {
+                max = Math.max(max, this.distances[i]);
+            }
+            return max;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(this.indices, this.size);
+        }
+
+        void sort() {
+            sort(0, this.size - 1);
+        }
+
+        private void sort(int lo, int hi) {
+            while (hi - lo > 16) {
+                int mid = (lo + hi) >>> 1;
+                swap(mid, hi);
+                int store = lo;
+                for (int i = lo; i < hi; i++) {
+                    if (less(i, hi)) {
+                        swap(i, store++);
+                    }
+                }
+                swap(store, hi);
+                // Recurse into the smaller half to bound the stack depth.
+                if (store - lo < hi - store) {
+                    sort(lo, store - 1);
+                    lo = store + 1;
+                } else {
+                    sort(store + 1, hi);
+                    hi = store - 1;
+                }
+            }
+            for (int i = lo + 1; i <= hi; i++) {
+                for (int j = i; j > lo && less(j, j - 1); j--) {
+                    swap(j, j - 1);
+                }
+            }
+        }
+
+        private boolean less(int a, int b) {
+            return this.distances[a] < this.distances[b]
+                    || (this.distances[a] == this.distances[b]
+                            && this.indices[a] < this.indices[b]);
+        }
+
+        private void swap(int a, int b) {
+            int index = this.indices[a];
+            this.indices[a] = this.indices[b];
+            this.indices[b] = index;
+            double d2 = this.distances[a];
+            this.distances[a] = this.distances[b];
+            this.distances[b] = d2;
+        }
+    }
+}
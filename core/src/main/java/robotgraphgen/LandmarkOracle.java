@@ -0,0 +1,402 @@
+package robotgraphgen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Bounds roadmap distances using precomputed distances from a few landmark
+ * vertices (the ALT technique). For any landmark l, the triangle inequality
+ * gives |d(l, u) - d(l, v)| <= d(u, v) <= d(l, u) + d(l, v), so both bounds
+ * cost a pass over the landmarks instead of a search. The lower bound also
+ * makes a much tighter A* heuristic than straight-line distance, since it
+ * knows about detours around obstacles.
+ *
+ * Landmarks are picked farthest first within the roadmap's largest
+ * connected component: each is the vertex farthest along the roadmap from
+ * those already picked, which spreads them around the edge of the space
+ * where they give the tightest bounds. A component with fewer vertices than
+ * the landmarks asked for gets one landmark per vertex.
+ *
+ * Distances are stored as floats, vertex by vertex, so the landmarks of one
+ * vertex are read together. Oracles can be written next to a roadmap file
+ * and mapped back into memory in the same way, using this little-endian
+ * layout:
+ *
+ * <pre>
+ *   0  int    magic "RGGL"
+ *   4  int    format version
+ *   8  int    vertex count n
+ *  12  int    directed edge count m of the roadmap
+ *  16  int    landmark count L
+ *  24  long   checksum of the roadmap's coordinates and adjacency
+ *  32  int    landmarks[L]
+ *      float  distances[n * L], from landmark l to vertex v at v * L + l
+ * </pre>
+ *
+ * Vertices a landmark can't reach have infinite distance from it. The
+ * checksum ties the file to one roadmap, so an oracle is never used with a
+ * different roadmap that happens to have as many vertices and edges.
+ */
+public class LandmarkOracle {
+    public static final int MAGIC = 0x5247474C; // "RGGL"
+    public static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 32;
+
+    private final int numVertices;
+    private final int numEdges;
+    private final long checksum;
+    private final int[] landmarks;
+    private final FloatBuffer distances;
+
+    private LandmarkOracle(int numVertices, int numEdges, long checksum, int[] landmarks,
+            FloatBuffer distances) {
+        this.numVertices = numVertices;
+        this.numEdges = numEdges;
+        this.checksum = checksum;
+        this.landmarks = landmarks;
+        this.distances = distances;
+    }
+
+    /**
+     * Picks landmarks and computes their distances to every vertex. On a
+     * roadmap with lazy edges this checks every edge the searches reach.
+     *
+     * @param edges        the roadmap and its edge validator
+     * @param numLandmarks how many landmarks to pick; fewer are picked if the
+     *                     largest component runs out of vertices
+     * @return the oracle
+     */
+    public static LandmarkOracle build(LazyEdges edges, int numLandmarks) {
+        if (numLandmarks < 1) {
+            throw new IllegalArgumentException("Need at least one landmark");
+        }
+        CompactGraph graph = edges.getGraph();
+        int n = graph.numVertices();
+        long checksum = checksum(graph);
+        int count = Math.min(numLandmarks, n);
+        int[] landmarks = new int[count];
+        float[] distances = new float[n * count];
+        if (count == 0) {
+            return new LandmarkOracle(n, graph.numEdges(), checksum, landmarks,
+                    FloatBuffer.wrap(distances));
+        }
+
+        IndexedMinHeap open = new IndexedMinHeap(n);
+        double[] dist = new double[n];
+        // The distance from each vertex to its closest landmark so far.
+        double[] closest = new double[n];
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+        boolean[] chosen = new boolean[n];
+
+        // Seed the first pick with the vertex farthest from some vertex of
+        // the largest component, so that no landmark is wasted on a stray
+        // vertex.
+        shortestPaths(edges, largestComponentMember(edges), open, dist);
+        int next = farthest(dist, chosen);
+        int picked = 0;
+        while (picked < count && next >= 0) {
+            landmarks[picked] = next;
+            chosen[next] = true;
+            shortestPaths(edges, next, open, dist);
+            for (int v = 0; v < n; v++) {
+                distances[v * count + picked] = (float) dist[v];
+                closest[v] = Math.min(closest[v], dist[v]);
+            }
+            picked++;
+            next = farthest(closest, chosen);
+        }
+
+        if (picked < count) {
+            // Every vertex of the component is a landmark, so drop the
+            // unused columns.
+            float[] packed = new float[n * picked];
+            for (int v = 0; v < n; v++) {
+                System.arraycopy(distances, v * count, packed, v * picked, picked);
+            }
+            landmarks = Arrays.copyOf(landmarks, picked);
+            distances = packed;
+        }
+        return new LandmarkOracle(n, graph.numEdges(), checksum, landmarks,
+                FloatBuffer.wrap(distances));
+    }
+
+    public int numLandmarks() {
+        return this.landmarks.length;
+    }
+
+    /**
+     * @return the vertex the i-th landmark sits on
+     */
+    public int landmark(int i) {
+        return this.landmarks[i];
+    }
+
+    /**
+     * @return the roadmap distance from the l-th landmark to v
+     */
+    public float distance(int l, int v) {
+        return this.distances.get(v * this.landmarks.length + l);
+    }
+
+    /**
+     * @return a lower bound on the roadmap distance between u and v, or
+     *         infinity if they aren't connected
+     */
+    public double lowerBound(int u, int v) {
+        int count = this.landmarks.length;
+        double bound = 0;
+        for (int l = 0; l < count; l++) {
+            double du = this.distances.get(u * count + l);
+            double dv = this.distances.get(v * count + l);
+            if (du == Double.POSITIVE_INFINITY || dv == Double.POSITIVE_INFINITY) {
+                if (du != dv) {
+                    // One of them is in the landmark's component and the
+                    // other isn't.
+                    return Double.POSITIVE_INFINITY;
+                }
+                continue;
+            }
+            bound = Math.max(bound, Math.abs(du - dv) - slack(du, dv));
+        }
+        return bound;
+    }
+
+    /**
+     * @return an upper bound on the roadmap distance between u and v, which
+     *         is the length of a path through one of the landmarks, or
+     *         infinity if no landmark reaches both
+     */
+    public double upperBound(int u, int v) {
+        int count = this.landmarks.length;
+        double bound = Double.POSITIVE_INFINITY;
+        for (int l = 0; l < count; l++) {
+            bound = Math.min(bound, (double) this.distances.get(u * count + l)
+                    + this.distances.get(v * count + l));
+        }
+        return bound;
+    }
+
+    /**
+     * Checks whether this oracle was built for the given roadmap, by its
+     * counts and a checksum of its coordinates and adjacency.
+     */
+    public boolean matches(CompactGraph graph) {
+        return graph.numVertices() == this.numVertices && graph.numEdges() == this.numEdges
+                && checksum(graph) == this.checksum;
+    }
+
+    /**
+     * Writes the oracle to a file, which is best kept next to the roadmap it
+     * was built for.
+     *
+     * @param path the file to write, replacing any existing file
+     * @throws IOException if the file can't be written
+     */
+    public void write(Path path) throws IOException {
+        long size = fileSize(this.numVertices, this.landmarks.length);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Oracle too large for a single mapping: " + size + " bytes");
+        }
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(0, MAGIC);
+            out.putInt(4, VERSION);
+            out.putInt(8, this.numVertices);
+            out.putInt(12, this.numEdges);
+            out.putInt(16, this.landmarks.length);
+            out.putLong(24, this.checksum);
+
+            int position = HEADER_SIZE;
+            section(out, position, 4L * this.landmarks.length).asIntBuffer().put(this.landmarks);
+            position += 4 * this.landmarks.length;
+            section(out, position, 4L * this.distances.limit()).asFloatBuffer()
+                    .put(this.distances.duplicate().rewind());
+            out.force();
+        }
+    }
+
+    /**
+     * Maps an oracle file into memory.
+     *
+     * @param path  the file to load
+     * @param graph the roadmap the oracle is for
+     * @return the oracle, backed by the file's memory mapping
+     * @throws IOException if the file can't be read, isn't a valid oracle,
+     *                     or was built for a different roadmap
+     */
+    public static LandmarkOracle load(Path path, CompactGraph graph) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException(path + ": too short to be a landmark oracle");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + ": too large for a single mapping");
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            in.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (in.getInt(0) != MAGIC) {
+                throw new IOException(path + ": not a landmark oracle file");
+            }
+            if (in.getInt(4) != VERSION) {
+                throw new IOException(path + ": unsupported oracle version " + in.getInt(4));
+            }
+            int n = in.getInt(8);
+            int m = in.getInt(12);
+            int count = in.getInt(16);
+            if (n < 0 || count < 0 || fileSize(n, count) != size) {
+                throw new IOException(path + ": header doesn't match file size");
+            }
+            long checksum = in.getLong(24);
+            if (n != graph.numVertices() || m != graph.numEdges() || checksum != checksum(graph)) {
+                throw new IOException(path + ": built for a different roadmap");
+            }
+
+            int[] landmarks = new int[count];
+            IntBuffer landmarkBuffer = section(in, HEADER_SIZE, 4L * count).asIntBuffer();
+            landmarkBuffer.get(landmarks);
+            for (int landmark : landmarks) {
+                if (landmark < 0 || landmark >= n) {
+                    throw new IOException(path + ": landmark " + landmark + " out of range");
+                }
+            }
+            FloatBuffer distances = section(in, HEADER_SIZE + 4 * count, 4L * n * count)
+                    .asFloatBuffer();
+            return new LandmarkOracle(n, m, checksum, landmarks, distances);
+        }
+    }
+
+    /**
+     * Fills dist with the roadmap distance from source to every vertex.
+     */
+    private static void shortestPaths(LazyEdges edges, int source, IndexedMinHeap open,
+            double[] dist) {
+        CompactGraph graph = edges.getGraph();
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[source] = 0;
+        open.clear();
+        open.offer(source, 0);
+        while (!open.isEmpty()) {
+            int v = open.poll();
+            double dv = dist[v];
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                int u = graph.target(e);
+                if (!edges.isValid(v, e)) {
+                    continue;
+                }
+                double w = graph.hasWeights()
+                        ? graph.weight(e)
+                        : PathPlanner.distance(graph.x(v), graph.y(v), graph.x(u), graph.y(u));
+                if (dv + w < dist[u]) {
+                    dist[u] = dv + w;
+                    open.offer(u, dv + w);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a vertex in the largest connected component
+     */
+    private static int largestComponentMember(LazyEdges edges) {
+        CompactGraph graph = edges.getGraph();
+        int n = graph.numVertices();
+        boolean[] seen = new boolean[n];
+        int[] queue = new int[n];
+        int best = 0;
+        int bestSize = 0;
+        for (int root = 0; root < n && bestSize <= n / 2; root++) {
+            if (seen[root]) {
+                continue;
+            }
+            seen[root] = true;
+            queue[0] = root;
+            int size = 1;
+            for (int head = 0; head < size; head++) {
+                int v = queue[head];
+                for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                    int u = graph.target(e);
+                    if (!seen[u] && edges.isValid(v, e)) {
+                        seen[u] = true;
+                        queue[size++] = u;
+                    }
+                }
+            }
+            if (size > bestSize) {
+                best = root;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the vertex not yet chosen with the largest finite value, or -1
+     *         if every vertex with a finite value has been chosen
+     */
+    private static int farthest(double[] values, boolean[] chosen) {
+        int best = -1;
+        for (int v = 0; v < values.length; v++) {
+            if (!chosen[v] && values[v] != Double.POSITIVE_INFINITY
+                    && (best < 0 || values[v] > values[best])) {
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return a 64-bit hash of the graph's coordinates, offsets and targets
+     */
+    static long checksum(CompactGraph graph) {
+        long hash = 0xcbf29ce484222325L;
+        for (int v = 0; v < graph.numVertices(); v++) {
+            hash = mix(hash, Double.doubleToLongBits(graph.x(v)));
+            hash = mix(hash, Double.doubleToLongBits(graph.y(v)));
+            hash = mix(hash, graph.edgeEnd(v));
+        }
+        for (int e = 0; e < graph.numEdges(); e++) {
+            hash = mix(hash, graph.target(e));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        hash = (hash ^ value) * 0x9e3779b97f4a7c15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    /**
+     * Stored distances are rounded to floats, so bounds built from them are
+     * loosened by a little more than the rounding could have added to keep
+     * them safe for A*.
+     */
+    static double slack(double a, double b) {
+        return 1e-6 * (Math.abs(a) + Math.abs(b));
+    }
+
+    private static long fileSize(int n, int count) {
+        return HEADER_SIZE + 4L * count + 4L * n * count;
+    }
+
+    private static ByteBuffer section(ByteBuffer buffer, int position, long length) {
+        return buffer.duplicate()
+                .position(position)
+                .limit(position + (int) length)
+                .slice()
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,86 @@
+package robotgraphgen;
+
+/**
+ * Checks a roadmap's edges for collisions on demand, remembering each
+ * result. Searches over a graph built with lazy edges ask this about every
+ * edge they're about to relax, so only the edges a query actually reaches
+ * are ever checked, and none is checked twice.
+ *
+ * Results are kept per edge index of the CompactGraph, and checking an edge
+ * also settles the edge in the opposite direction. Concurrent searches may
+ * share one instance: racing threads can at worst both check the same edge,
+ * and will always agree on the result.
+ */
+public class LazyEdges {
+    private static final byte UNKNOWN = 0;
+    private static final byte VALID = 1;
+    private static final byte INVALID = 2;
+
+    private final CompactGraph graph;
+    private final Map map;
+    private final GraphOptions.EdgeCheck edgeCheck;
+    // The status of each edge, or null if every edge was checked at build
+    // time.
+    private final byte[] status;
+
+    /**
+     * @param graph      the roadmap
+     * @param map        the map the roadmap was built on
+     * @param parameters the parameters the roadmap was built with
+     */
+    public LazyEdges(CompactGraph graph, Map map, BuildParameters parameters) {
+        this.graph = graph;
+        this.map = map;
+        this.edgeCheck = parameters.getEdgeCheck();
+        this.status = parameters.isLazyEdges() ? new byte[graph.numEdges()] : null;
+    }
+
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @param from the vertex the edge leaves
+     * @param e    the index of an edge leaving from
+     * @return whether the edge avoids all obstacles
+     */
+    public boolean isValid(int from, int e) {
+        if (this.status == null) {
+            return true;
+        }
+        byte known = this.status[e];
+        if (known != UNKNOWN) {
+            return known == VALID;
+        }
+
+        int to = this.graph.target(e);
+        boolean valid = Graph.edgeIsValid(
+                this.graph.x(from), this.graph.y(from), this.graph.x(to), this.graph.y(to),
+                this.map, this.edgeCheck);
+        byte result = valid ? VALID : INVALID;
+        this.status[e] = result;
+        for (int back = this.graph.edgeStart(to); back < this.graph.edgeEnd(to); back++) {
+            if (this.graph.target(back) == from) {
+                this.status[back] = result;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * @return how many edges have been checked so far, counting each
+     *         direction separately
+     */
+    public int numChecked() {
+        if (this.status == null) {
+            return 0;
+        }
+        int checked = 0;
+        for (byte s : this.status) {
+            if (s != UNKNOWN) {
+                checked++;
+            }
+        }
+        return checked;
+    }
+}
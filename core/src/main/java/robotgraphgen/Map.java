@@ -0,0 +1,406 @@
+package robotgraphgen;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Map {
+    private double width;
+    private double height;
+    private List<Obstacle> obstacles;
+    // Broad-phase buckets of obstacle indices.
+    private ObstacleGrid grid;
+    private boolean useGrid;
+    // Conservative raster of the obstacles, or null to check them exactly.
+    private OccupancyBitmap bitmap;
+    // Distances to the nearest obstacle, or null if not computed.
+    private ClearanceField clearanceField;
+
+    public Map(double width, double height) {
+        this(width, height, List.of(
+                new double[] { 0.0, 0.0, width * 0.5, height * 0.1 },
+                new double[] { width * 0.4, height * 0.3, width * 0.3, height * 0.3 },
+                new double[] { width * 0.2, height * 0.8, width * 0.6, height * 0.1 }));
+    }
+
+    /**
+     * @param width      the width of the map
+     * @param height     the height of the map
+     * @param rectangles the obstacles in the map, each given as
+     *                   {x, y, width, height}
+     */
+    public Map(double width, double height, List<double[]> rectangles) {
+        this.width = width;
+        this.height = height;
+        this.obstacles = new ArrayList<>();
+        for (double[] r : rectangles) {
+            this.obstacles.add(new Obstacle(r[0], r[1], r[2], r[3]));
+        }
+
+        this.grid = ObstacleGrid.sizedFor(width, height, this.obstacles.size());
+        for (int i = 0; i < this.obstacles.size(); i++) {
+            Obstacle o = this.obstacles.get(i);
+            this.grid.insert(i, o.x, o.y, o.width, o.height);
+        }
+        this.useGrid = true;
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public int numObstacles() {
+        return this.obstacles.size();
+    }
+
+    /**
+     * Hashes the map's size and obstacles, so that maps with the same
+     * contents get the same hash regardless of how they were loaded.
+     * 
+     * @return the first 64 bits of a SHA-256 digest of the map's contents
+     */
+    public long contentHash() {
+        ByteBuffer bytes = ByteBuffer.allocate(8 * (2 + 4 * this.obstacles.size()));
+        bytes.putDouble(this.width).putDouble(this.height);
+        for (Obstacle o : this.obstacles) {
+            bytes.putDouble(o.x).putDouble(o.y).putDouble(o.width).putDouble(o.height);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes.array());
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param useGrid whether inObstacle should only test the obstacles in the
+     *                point's grid cell rather than scanning every obstacle
+     */
+    public void setUseGrid(boolean useGrid) {
+        this.useGrid = useGrid;
+    }
+
+    /**
+     * Rasterizes the obstacles into an occupancy bitmap, after which
+     * inObstacle is a single bit lookup for points inside the map. The
+     * bitmap is conservative: any cell touching an obstacle counts as
+     * blocked, so points near obstacles may be reported as blocked but
+     * points in obstacles are never reported as free.
+     * 
+     * @param cellSize the side length of each bitmap cell in pixels
+     */
+    public void rasterize(double cellSize) {
+        OccupancyBitmap raster = new OccupancyBitmap(this.width, this.height, cellSize);
+        for (Obstacle o : this.obstacles) {
+            raster.fill(o.x, o.y, o.width, o.height);
+        }
+        this.bitmap = raster;
+    }
+
+    /**
+     * Discards the occupancy bitmap so inObstacle checks obstacles exactly.
+     */
+    public void clearRaster() {
+        this.bitmap = null;
+    }
+
+    /**
+     * @return the cell size of the occupancy bitmap, or 0 if inObstacle
+     *         checks obstacles exactly
+     */
+    public double getRasterCellSize() {
+        return this.bitmap == null ? 0 : this.bitmap.getCellSize();
+    }
+
+    /**
+     * Computes the distance from each cell of a grid to the nearest obstacle,
+     * after which clearance gives a lower bound on how far any point is from
+     * the obstacles, and edges checked with EdgeCheck.CLEARANCE can skip
+     * through open space. Adding or removing obstacles recomputes it.
+     * 
+     * @param cellSize the side length of each cell in pixels; clearances are
+     *                 underestimated by up to about 3 cells
+     */
+    public void computeClearance(double cellSize) {
+        ClearanceField field = new ClearanceField(this.width, this.height, cellSize);
+        for (Obstacle o : this.obstacles) {
+            field.block(o.x, o.y, o.width, o.height);
+        }
+        field.computeDistances();
+        this.clearanceField = field;
+    }
+
+    /**
+     * Discards the clearance field.
+     */
+    public void clearClearance() {
+        this.clearanceField = null;
+    }
+
+    public boolean hasClearance() {
+        return this.clearanceField != null;
+    }
+
+    /**
+     * @return a distance from (x, y) within which there are no obstacles; 0
+     *         without a clearance field, next to obstacles, or outside the
+     *         map
+     */
+    public double clearance(double x, double y) {
+        return this.clearanceField == null ? 0 : this.clearanceField.clearance(x, y);
+    }
+
+    /**
+     * @return the cell size of the clearance field, or 0 if there is none
+     */
+    public double getClearanceCellSize() {
+        return this.clearanceField == null ? 0 : this.clearanceField.getCellSize();
+    }
+
+    /**
+     * Adds an obstacle, updating the grid and any occupancy bitmap. Graphs
+     * built on this map must be repaired with Graph.obstacleAdded.
+     * 
+     * @return the index of the new obstacle
+     */
+    public int addObstacle(double x, double y, double width, double height) {
+        Obstacle o = new Obstacle(x, y, width, height);
+        int index = this.obstacles.size();
+        this.obstacles.add(o);
+        this.grid.insert(index, o.x, o.y, o.width, o.height);
+        if (this.bitmap != null) {
+            this.bitmap.fill(o.x, o.y, o.width, o.height);
+        }
+        if (this.clearanceField != null) {
+            computeClearance(this.clearanceField.getCellSize());
+        }
+        return index;
+    }
+
+    /**
+     * Removes an obstacle, updating the grid and any occupancy bitmap. The
+     * last obstacle takes over the removed obstacle's index. Graphs built on
+     * this map must be repaired with Graph.obstacleRemoved.
+     * 
+     * @param i the index of the obstacle to remove
+     * @return the removed obstacle's bounds as {x, y, width, height}
+     */
+    public double[] removeObstacle(int i) {
+        Obstacle removed = this.obstacles.get(i);
+        this.grid.remove(i, removed.x, removed.y, removed.width, removed.height);
+
+        int last = this.obstacles.size() - 1;
+        if (i != last) {
+            Obstacle moved = this.obstacles.get(last);
+            this.grid.remove(last, moved.x, moved.y, moved.width, moved.height);
+            this.grid.insert(i, moved.x, moved.y, moved.width, moved.height);
+            this.obstacles.set(i, moved);
+        }
+        this.obstacles.remove(last);
+
+        if (this.bitmap != null) {
+            // Clear the obstacle's cells, then restore those still touched by
+            // other obstacles. Those may lie up to a cell away from it.
+            this.bitmap.clear(removed.x, removed.y, removed.width, removed.height);
+            double margin = this.bitmap.getCellSize();
+            int minCol = this.grid.colOf(removed.x - margin);
+            int maxCol = this.grid.colOf(removed.x + removed.width + margin);
+            int minRow = this.grid.rowOf(removed.y - margin);
+            int maxRow = this.grid.rowOf(removed.y + removed.height + margin);
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int col = minCol; col <= maxCol; col++) {
+                    int cell = this.grid.cellAt(col, row);
+                    for (int j = 0; j < this.grid.bucketSize(cell); j++) {
+                        Obstacle o = this.obstacles.get(this.grid.bucketEntry(cell, j));
+                        this.bitmap.fill(o.x, o.y, o.width, o.height);
+                    }
+                }
+            }
+        }
+        if (this.clearanceField != null) {
+            computeClearance(this.clearanceField.getCellSize());
+        }
+        return new double[] { removed.x, removed.y, removed.width, removed.height };
+    }
+
+    /**
+     * @param i the index of an obstacle
+     * @return the obstacle's bounds as {x, y, width, height}
+     */
+    public double[] getObstacle(int i) {
+        Obstacle o = this.obstacles.get(i);
+        return new double[] { o.x, o.y, o.width, o.height };
+    }
+
+    /**
+     * Checks whether a point is in collision with any obstacle in the map.
+     * 
+     * @param point the point to check
+     * @return whether the point is contained within any obstacle
+     */
+    public boolean inObstacle(double[] point) {
+        return inObstacle(point[0], point[1]);
+    }
+
+    /**
+     * Checks whether a point is in collision with any obstacle in the map.
+     * 
+     * @param x the x coordinate of the point to check
+     * @param y the y coordinate of the point to check
+     * @return whether the point is contained within any obstacle
+     */
+    public boolean inObstacle(double x, double y) {
+        if (this.bitmap != null && this.bitmap.covers(x, y)) {
+            return this.bitmap.isBlocked(x, y);
+        }
+        if (!this.useGrid || !this.grid.covers(x, y)) {
+            return inObstacleLinear(x, y);
+        }
+
+        int cell = this.grid.cellOf(x, y);
+        for (int i = 0; i < this.grid.bucketSize(cell); i++) {
+            if (this.obstacles.get(this.grid.bucketEntry(cell, i)).contains(x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks exactly whether the segment from a to b passes through the
+     * interior of any obstacle. Segments that only touch an obstacle's
+     * boundary are not blocked.
+     * 
+     * @param a the first endpoint of the segment
+     * @param b the second endpoint of the segment
+     * @return whether the segment intersects any obstacle
+     */
+    public boolean segmentBlocked(double[] a, double[] b) {
+        return segmentBlocked(a[0], a[1], b[0], b[1]);
+    }
+
+    /**
+     * Checks exactly whether the segment from (x1, y1) to (x2, y2) passes
+     * through the interior of any obstacle, without allocating.
+     */
+    public boolean segmentBlocked(double x1, double y1, double x2, double y2) {
+        double minX = Math.min(x1, x2), maxX = Math.max(x1, x2);
+        double minY = Math.min(y1, y2), maxY = Math.max(y1, y2);
+        if (!this.useGrid || !this.grid.covers(minX, minY) || !this.grid.covers(maxX, maxY)) {
+            for (int i = 0; i < this.obstacles.size(); i++) {
+                if (this.obstacles.get(i).intersects(x1, y1, x2, y2)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Only obstacles in cells overlapping the segment's bounding box can
+        // intersect it. Obstacles spanning several cells may be tested more
+        // than once, which is harmless.
+        for (int row = this.grid.rowOf(minY); row <= this.grid.rowOf(maxY); row++) {
+            for (int col = this.grid.colOf(minX); col <= this.grid.colOf(maxX); col++) {
+                int cell = this.grid.cellAt(col, row);
+                for (int i = 0; i < this.grid.bucketSize(cell); i++) {
+                    if (this.obstacles.get(this.grid.bucketEntry(cell, i))
+                            .intersects(x1, y1, x2, y2)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks a point against every obstacle, without the broad-phase grid.
+     * 
+     * @param point the point to check
+     * @return whether the point is contained within any obstacle
+     */
+    public boolean inObstacleLinear(double[] point) {
+        return inObstacleLinear(point[0], point[1]);
+    }
+
+    /**
+     * Checks a point against every obstacle, without the broad-phase grid.
+     * 
+     * @param x the x coordinate of the point to check
+     * @param y the y coordinate of the point to check
+     * @return whether the point is contained within any obstacle
+     */
+    public boolean inObstacleLinear(double x, double y) {
+        // Indexed loop so no iterator is created.
+        for (int i = 0; i < this.obstacles.size(); i++) {
+            if (this.obstacles.get(i).contains(x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Obstacle {
+        double x, y, width, height;
+
+        public Obstacle(double x, double y, double width, double height) {
+            if (x < 0 || y < 0 || width < 0 || height < 0) {
+                throw new IllegalArgumentException("Negative values not allowed");
+            }
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        public boolean contains(double px, double py) {
+            return this.x < px && px < this.x + this.width
+                    && this.y < py && py < this.y + this.height;
+        }
+
+        /**
+         * Clips the segment from (x1, y1) to (x2, y2) against each pair of
+         * slabs bounding the rectangle, and checks whether any part of it
+         * remains strictly inside.
+         */
+        public boolean intersects(double x1, double y1, double x2, double y2) {
+            double tEnter = 0.0;
+            double tExit = 1.0;
+
+            double dx = x2 - x1;
+            if (dx == 0) {
+                // Parallel to the vertical slabs, so it's either always
+                // between them or never.
+                if (x1 <= this.x || x1 >= this.x + this.width) {
+                    return false;
+                }
+            } else {
+                double t1 = (this.x - x1) / dx;
+                double t2 = (this.x + this.width - x1) / dx;
+                tEnter = Math.max(tEnter, Math.min(t1, t2));
+                tExit = Math.min(tExit, Math.max(t1, t2));
+            }
+
+            double dy = y2 - y1;
+            if (dy == 0) {
+                if (y1 <= this.y || y1 >= this.y + this.height) {
+                    return false;
+                }
+            } else {
+                double t1 = (this.y - y1) / dy;
+                double t2 = (this.y + this.height - y1) / dy;
+                tEnter = Math.max(tEnter, Math.min(t1, t2));
+                tExit = Math.min(tExit, Math.max(t1, t2));
+            }
+
+            return tEnter < tExit;
+        }
+    }
+}
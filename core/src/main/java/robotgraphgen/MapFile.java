@@ -0,0 +1,99 @@
+package robotgraphgen;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads maps from a plain text format. Blank lines and lines starting with #
+ * are ignored. The first remaining line gives the map's size, and each line
+ * after it adds one rectangular obstacle:
+ * 
+ * <pre>
+ * size &lt;width&gt; &lt;height&gt;
+ * rect &lt;x&gt; &lt;y&gt; &lt;width&gt; &lt;height&gt;
+ * </pre>
+ *
+ * Reading also accepts the binary formats of ObstacleFile and OccupancyImage,
+ * recognised by their first bytes.
+ */
+public class MapFile {
+    private MapFile() {
+    }
+
+    /**
+     * @param path the file to read
+     * @return the map described by the file
+     * @throws IOException if the file can't be read or isn't a valid map
+     */
+    public static Map read(Path path) throws IOException {
+        byte[] start = new byte[8];
+        int length;
+        try (InputStream in = Files.newInputStream(path)) {
+            length = in.readNBytes(start, 0, start.length);
+        }
+        if (OccupancyImage.isImage(start, length)) {
+            return OccupancyImage.read(path);
+        }
+        if (length >= 4 && (start[0] & 0xff | (start[1] & 0xff) << 8 | (start[2] & 0xff) << 16
+                | (start[3] & 0xff) << 24) == ObstacleFile.MAGIC) {
+            return ObstacleFile.read(path);
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            double width = -1;
+            double height = -1;
+            List<double[]> rectangles = new ArrayList<>();
+
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split("\\s+");
+                if (width < 0) {
+                    if (!fields[0].equals("size") || fields.length != 3) {
+                        throw new IOException(path + ":" + lineNumber + ": expected size <width> <height>");
+                    }
+                    width = parse(fields[1], path, lineNumber);
+                    height = parse(fields[2], path, lineNumber);
+                } else {
+                    if (!fields[0].equals("rect") || fields.length != 5) {
+                        throw new IOException(path + ":" + lineNumber + ": expected rect <x> <y> <width> <height>");
+                    }
+                    rectangles.add(new double[] {
+                            parse(fields[1], path, lineNumber),
+                            parse(fields[2], path, lineNumber),
+                            parse(fields[3], path, lineNumber),
+                            parse(fields[4], path, lineNumber) });
+                }
+            }
+
+            if (width < 0) {
+                throw new IOException(path + ": missing size line");
+            }
+            try {
+                return new Map(width, height, rectangles);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static double parse(String field, Path path, int lineNumber) throws IOException {
+        try {
+            return Double.parseDouble(field);
+        } catch (NumberFormatException e) {
+            throw new IOException(path + ":" + lineNumber + ": not a number: " + field, e);
+        }
+    }
+}
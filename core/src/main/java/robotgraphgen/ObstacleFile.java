@@ -0,0 +1,125 @@
+package robotgraphgen;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes maps as a binary list of rectangles, which loads without
+ * parsing text. Converting an occupancy image once and keeping the result
+ * skips decoding and merging its pixels on every run.
+ *
+ * All values are little-endian. The file is a 32 byte header followed by the
+ * obstacles:
+ *
+ * <pre>
+ *   0  int    magic "RGGM"
+ *   4  int    format version
+ *   8  int    obstacle count n
+ *  12  int    reserved
+ *  16  double map width
+ *  24  double map height
+ *  32  double rectangles[4n], each {x, y, width, height}
+ * </pre>
+ */
+public class ObstacleFile {
+    public static final int MAGIC = 0x4D474752; // "RGGM"
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+
+    private ObstacleFile() {
+    }
+
+    /**
+     * @param path the file to write, replacing any existing file
+     * @param map  the map to write
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path path, Map map) throws IOException {
+        int n = map.numObstacles();
+        long size = fileSize(n);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Map too large for a single mapping: " + size + " bytes");
+        }
+
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(0, MAGIC);
+            out.putInt(4, VERSION);
+            out.putInt(8, n);
+            out.putDouble(16, map.getWidth());
+            out.putDouble(24, map.getHeight());
+
+            DoubleBuffer rectangles = out.duplicate()
+                    .position(HEADER_SIZE)
+                    .slice()
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asDoubleBuffer();
+            for (int i = 0; i < n; i++) {
+                rectangles.put(map.getObstacle(i));
+            }
+            out.force();
+        }
+    }
+
+    /**
+     * @param path the file to read
+     * @return the map described by the file
+     * @throws IOException if the file can't be read or isn't a valid map
+     */
+    public static Map read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException(path + ": too short to be an obstacle file");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + ": too large for a single mapping");
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            in.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (in.getInt(0) != MAGIC) {
+                throw new IOException(path + ": not an obstacle file");
+            }
+            if (in.getInt(4) != VERSION) {
+                throw new IOException(path + ": unsupported obstacle file version " + in.getInt(4));
+            }
+            int n = in.getInt(8);
+            if (n < 0 || fileSize(n) != size) {
+                throw new IOException(path + ": header doesn't match file size");
+            }
+
+            DoubleBuffer values = in.duplicate()
+                    .position(HEADER_SIZE)
+                    .slice()
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asDoubleBuffer();
+            List<double[]> rectangles = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                double[] r = new double[4];
+                values.get(r);
+                rectangles.add(r);
+            }
+            try {
+                return new Map(in.getDouble(16), in.getDouble(24), rectangles);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static long fileSize(int n) {
+        return HEADER_SIZE + 8L * 4 * n;
+    }
+}
@@ -0,0 +1,142 @@
+package robotgraphgen;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid of buckets over a rectangular region. Each bucket holds the
+ * ids of the rectangles overlapping its cell, so a point query only has to
+ * look at the few rectangles sharing its cell.
+ */
+public class ObstacleGrid {
+    private final double width;
+    private final double height;
+    private final int cols;
+    private final int rows;
+    private final int[][] buckets;
+    private final int[] sizes;
+
+    /**
+     * @param width  the width of the region covered by the grid
+     * @param height the height of the region covered by the grid
+     * @param cols   the number of cells across
+     * @param rows   the number of cells down
+     */
+    public ObstacleGrid(double width, double height, int cols, int rows) {
+        if (cols < 1 || rows < 1) {
+            throw new IllegalArgumentException("Grid needs at least one cell");
+        }
+        this.width = width;
+        this.height = height;
+        this.cols = cols;
+        this.rows = rows;
+        this.buckets = new int[cols * rows][];
+        this.sizes = new int[cols * rows];
+    }
+
+    /**
+     * Picks a grid resolution that keeps buckets small for the given number
+     * of rectangles.
+     *
+     * @param width  the width of the region covered by the grid
+     * @param height the height of the region covered by the grid
+     * @param count  the number of rectangles that will be inserted
+     * @return an empty grid
+     */
+    public static ObstacleGrid sizedFor(double width, double height, int count) {
+        int side = (int) Math.min(1024, Math.max(1, Math.ceil(2 * Math.sqrt(count))));
+        return new ObstacleGrid(width, height, side, side);
+    }
+
+    /**
+     * Adds a rectangle to every bucket whose cell it overlaps.
+     */
+    public void insert(int id, double x, double y, double w, double h) {
+        int minCol = colOf(x), maxCol = colOf(x + w);
+        int minRow = rowOf(y), maxRow = rowOf(y + h);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                add(r * this.cols + c, id);
+            }
+        }
+    }
+
+    /**
+     * Removes a rectangle previously inserted with the same bounds.
+     */
+    public void remove(int id, double x, double y, double w, double h) {
+        int minCol = colOf(x), maxCol = colOf(x + w);
+        int minRow = rowOf(y), maxRow = rowOf(y + h);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                int cell = r * this.cols + c;
+                int[] bucket = this.buckets[cell];
+                for (int i = 0; i < this.sizes[cell]; i++) {
+                    if (bucket[i] == id) {
+                        bucket[i] = bucket[--this.sizes[cell]];
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether (x, y) lies within the region covered by the grid
+     */
+    public boolean covers(double x, double y) {
+        return 0 <= x && x <= this.width && 0 <= y && y <= this.height;
+    }
+
+    /**
+     * @return the cell containing (x, y), which must be covered by the grid
+     */
+    public int cellOf(double x, double y) {
+        return rowOf(y) * this.cols + colOf(x);
+    }
+
+    /**
+     * @return the cell at the given column and row
+     */
+    public int cellAt(int col, int row) {
+        return row * this.cols + col;
+    }
+
+    /**
+     * @return the column containing x, clamped to the grid
+     */
+    public int colOf(double x) {
+        int c = (int) (x / this.width * this.cols);
+        return Math.max(0, Math.min(this.cols - 1, c));
+    }
+
+    /**
+     * @return the row containing y, clamped to the grid
+     */
+    public int rowOf(double y) {
+        int r = (int) (y / this.height * this.rows);
+        return Math.max(0, Math.min(this.rows - 1, r));
+    }
+
+    /**
+     * @return the number of rectangles in the cell's bucket
+     */
+    public int bucketSize(int cell) {
+        return this.sizes[cell];
+    }
+
+    /**
+     * @return the id of the i-th rectangle in the cell's bucket
+     */
+    public int bucketEntry(int cell, int i) {
+        return this.buckets[cell][i];
+    }
+
+    private void add(int cell, int id) {
+        if (this.buckets[cell] == null) {
+            this.buckets[cell] = new int[4];
+        } else if (this.sizes[cell] == this.buckets[cell].length) {
+            this.buckets[cell] = Arrays.copyOf(this.buckets[cell], 2 * this.sizes[cell]);
+        }
+        this.buckets[cell][this.sizes[cell]++] = id;
+    }
+}
@@ -0,0 +1,110 @@
+package robotgraphgen;
+
+/**
+ * A packed bitmap of blocked cells over a rectangular region, one bit per
+ * square cell. Rectangles are rasterized conservatively: every cell that
+ * touches a rectangle is marked, so a point inside a rectangle is always
+ * reported as blocked.
+ */
+public class OccupancyBitmap {
+    private final double width;
+    private final double height;
+    private final double cellSize;
+    private final int cols;
+    private final int rows;
+    private final long[] bits;
+
+    /**
+     * @param width    the width of the region covered by the bitmap
+     * @param height   the height of the region covered by the bitmap
+     * @param cellSize the side length of each cell
+     */
+    public OccupancyBitmap(double width, double height, double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.cellSize = cellSize;
+        this.cols = (int) Math.floor(width / cellSize) + 1;
+        this.rows = (int) Math.floor(height / cellSize) + 1;
+        long cells = (long) this.cols * this.rows;
+        if (cells > Integer.MAX_VALUE * 64L) {
+            throw new IllegalArgumentException("Bitmap too large: " + cells + " cells");
+        }
+        this.bits = new long[(int) ((cells + 63) >>> 6)];
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Marks every cell touching the rectangle as blocked.
+     */
+    public void fill(double x, double y, double w, double h) {
+        int minCol = clampCol(x), maxCol = clampCol(x + w);
+        int minRow = clampRow(y), maxRow = clampRow(y + h);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                long cell = (long) r * this.cols + c;
+                this.bits[(int) (cell >>> 6)] |= 1L << cell;
+            }
+        }
+    }
+
+    /**
+     * Marks every cell touching the rectangle as free. Callers must refill
+     * any other rectangles overlapping the cleared cells.
+     */
+    public void clear(double x, double y, double w, double h) {
+        int minCol = clampCol(x), maxCol = clampCol(x + w);
+        int minRow = clampRow(y), maxRow = clampRow(y + h);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                long cell = (long) r * this.cols + c;
+                this.bits[(int) (cell >>> 6)] &= ~(1L << cell);
+            }
+        }
+    }
+
+    /**
+     * @return whether (x, y) lies within the region covered by the bitmap
+     */
+    public boolean covers(double x, double y) {
+        return 0 <= x && x <= this.width && 0 <= y && y <= this.height;
+    }
+
+    /**
+     * @return whether the cell containing (x, y) is blocked; the point must be
+     *         covered by the bitmap
+     */
+    public boolean isBlocked(double x, double y) {
+        long cell = (long) (int) (y / this.cellSize) * this.cols + (int) (x / this.cellSize);
+        return (this.bits[(int) (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    /**
+     * @return whether the cell at (col, row) is blocked
+     */
+    public boolean isBlockedCell(int col, int row) {
+        long cell = (long) row * this.cols + col;
+        return (this.bits[(int) (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    private int clampCol(double x) {
+        return (int) Math.max(0, Math.min(this.cols - 1, Math.floor(x / this.cellSize)));
+    }
+
+    private int clampRow(double y) {
+        return (int) Math.max(0, Math.min(this.rows - 1, Math.floor(y / this.cellSize)));
+    }
+}
@@ -0,0 +1,585 @@
+package robotgraphgen;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import javax.imageio.ImageIO;
+
+/**
+ * Reads maps from occupancy-grid images, as saved by mapping tools. Each pixel
+ * is one unit square of the map, and pixels darker than a threshold are
+ * occupied. Fully or mostly transparent pixels are free.
+ *
+ * Binary PGM (P5) files are memory-mapped and PNG files are inflated as they
+ * are read, so only a couple of rows of the image are ever held in memory.
+ * Runs of occupied pixels along each row are merged with identical runs in
+ * the rows above into rectangles, so a large floor plan becomes a manageable
+ * number of obstacles rather than one per pixel. The boundary shared by two
+ * merged rectangles reads as free, just as between any two adjacent
+ * obstacles.
+ */
+public class OccupancyImage {
+    /** Gray levels below this, out of 255, are occupied. */
+    public static final int DEFAULT_THRESHOLD = 128;
+
+    private static final long PNG_SIGNATURE = 0x89504E470D0A1A0AL;
+    private static final int IHDR = 0x49484452;
+    private static final int PLTE = 0x504C5445;
+    private static final int TRNS = 0x74524E53;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454E44;
+
+    private OccupancyImage() {
+    }
+
+    /**
+     * @return whether the file starts like a binary PGM or a PNG
+     */
+    static boolean isImage(byte[] start, int length) {
+        if (length >= 2 && start[0] == 'P' && start[1] == '5') {
+            return true;
+        }
+        if (length < 8) {
+            return false;
+        }
+        long signature = 0;
+        for (int i = 0; i < 8; i++) {
+            signature = signature << 8 | (start[i] & 0xff);
+        }
+        return signature == PNG_SIGNATURE;
+    }
+
+    /**
+     * Reads an image with the default threshold.
+     *
+     * @param path the PGM or PNG file to read
+     * @return a map the size of the image with its dark pixels as obstacles
+     * @throws IOException if the file can't be read or isn't a supported image
+     */
+    public static Map read(Path path) throws IOException {
+        return read(path, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param path      the PGM or PNG file to read
+     * @param threshold the gray level, out of 255, below which a pixel is
+     *                  occupied
+     * @return a map the size of the image with its dark pixels as obstacles
+     * @throws IOException if the file can't be read or isn't a supported image
+     */
+    public static Map read(Path path, int threshold) throws IOException {
+        if (threshold < 0 || threshold > 256) {
+            throw new IllegalArgumentException("Threshold must be between 0 and 256");
+        }
+        byte[] start = new byte[8];
+        int length;
+        try (InputStream in = Files.newInputStream(path)) {
+            length = in.readNBytes(start, 0, start.length);
+        }
+        if (length >= 2 && start[0] == 'P' && start[1] == '5') {
+            return readPgm(path, threshold);
+        }
+        if (isImage(start, length)) {
+            return readPng(path, threshold);
+        }
+        throw new IOException(path + ": not a binary PGM or PNG image");
+    }
+
+    private static Map readPgm(Path path, int threshold) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + ": too large for a single mapping");
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            // The header is "P5", then width, height and maximum gray value in
+            // ASCII, separated by whitespace and comments, then a single
+            // whitespace character before the pixels.
+            in.position(2);
+            int width = pgmField(in, path);
+            int height = pgmField(in, path);
+            int maxValue = pgmField(in, path);
+            if (width <= 0 || height <= 0 || maxValue <= 0 || maxValue > 65535) {
+                throw new IOException(path + ": invalid PGM header");
+            }
+            in.get();
+            int bytesPerPixel = maxValue < 256 ? 1 : 2;
+            if (in.remaining() < (long) width * height * bytesPerPixel) {
+                throw new IOException(path + ": truncated PGM pixels");
+            }
+
+            // Compare raw samples against the threshold scaled to maxValue.
+            int scaled = (int) Math.ceil(threshold * maxValue / 255.0);
+            RowRunMerger merger = new RowRunMerger();
+            int position = in.position();
+            for (int y = 0; y < height; y++) {
+                int runStart = -1;
+                for (int x = 0; x < width; x++) {
+                    int value = bytesPerPixel == 1
+                            ? in.get(position) & 0xff
+                            : (in.get(position) & 0xff) << 8 | (in.get(position + 1) & 0xff);
+                    position += bytesPerPixel;
+                    if (value < scaled) {
+                        if (runStart < 0) {
+                            runStart = x;
+                        }
+                    } else if (runStart >= 0) {
+                        merger.addRun(runStart, x);
+                        runStart = -1;
+                    }
+                }
+                if (runStart >= 0) {
+                    merger.addRun(runStart, width);
+                }
+                merger.endRow();
+            }
+            return toMap(path, width, height, merger);
+        }
+    }
+
+    private static int pgmField(MappedByteBuffer in, Path path) throws IOException {
+        int c = ' ';
+        while (in.hasRemaining()) {
+            c = in.get() & 0xff;
+            if (c == '#') {
+                while (in.hasRemaining() && c != '\n' && c != '\r') {
+                    c = in.get() & 0xff;
+                }
+            } else if (!Character.isWhitespace(c)) {
+                break;
+            }
+        }
+        if (c < '0' || c > '9') {
+            throw new IOException(path + ": invalid PGM header");
+        }
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE || !in.hasRemaining()) {
+                throw new IOException(path + ": invalid PGM header");
+            }
+            c = in.get() & 0xff;
+        }
+        // Leave the delimiter after the number unread.
+        in.position(in.position() - 1);
+        return (int) value;
+    }
+
+    private static Map readPng(Path path, int threshold) throws IOException {
+        Map map = readPngRows(path, threshold);
+        // Interlaced images come in passes over the whole image, so there is
+        // nothing to gain from decoding them row by row. The file is closed
+        // by now, so Image I/O opens it afresh.
+        return map != null ? map : readWithImageIo(path, threshold);
+    }
+
+    /**
+     * Decodes a PNG a row at a time.
+     *
+     * @return the map, or null if the image is interlaced
+     */
+    private static Map readPngRows(Path path, int threshold) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            in.skipNBytes(8);
+
+            int width = -1;
+            int height = -1;
+            int bitDepth = 0;
+            int colorType = 0;
+            int interlace = 0;
+            byte[] palette = null;
+            byte[] transparency = null;
+            int length;
+            while (true) {
+                length = in.readInt();
+                int type = in.readInt();
+                if (length < 0) {
+                    throw new IOException(path + ": invalid PNG chunk");
+                }
+                if (type == IDAT) {
+                    break;
+                }
+                if (type == IEND) {
+                    throw new IOException(path + ": PNG has no image data");
+                }
+                if (type == IHDR) {
+                    width = in.readInt();
+                    height = in.readInt();
+                    bitDepth = in.readUnsignedByte();
+                    colorType = in.readUnsignedByte();
+                    in.skipNBytes(2);
+                    interlace = in.readUnsignedByte();
+                    in.skipNBytes(length - 13);
+                } else if (type == PLTE) {
+                    palette = in.readNBytes(length);
+                } else if (type == TRNS) {
+                    transparency = in.readNBytes(length);
+                } else {
+                    in.skipNBytes(length);
+                }
+                in.skipNBytes(4); // CRC
+            }
+            if (width <= 0 || height <= 0) {
+                throw new IOException(path + ": invalid PNG header");
+            }
+            if (interlace != 0) {
+                return null;
+            }
+
+            int channels;
+            switch (colorType) {
+                case 0:
+                case 3:
+                    channels = 1;
+                    break;
+                case 2:
+                    channels = 3;
+                    break;
+                case 4:
+                    channels = 2;
+                    break;
+                case 6:
+                    channels = 4;
+                    break;
+                default:
+                    throw new IOException(path + ": unsupported PNG color type " + colorType);
+            }
+            boolean validDepth = channels == 1
+                    ? Integer.bitCount(bitDepth) == 1 && bitDepth <= (colorType == 3 ? 8 : 16)
+                    : bitDepth == 8 || bitDepth == 16;
+            if (!validDepth) {
+                throw new IOException(path + ": invalid PNG bit depth " + bitDepth);
+            }
+            if (colorType == 3 && palette == null) {
+                throw new IOException(path + ": PNG palette missing");
+            }
+            long rowBytes = ((long) width * channels * bitDepth + 7) / 8;
+            if (rowBytes > Integer.MAX_VALUE - 1) {
+                throw new IOException(path + ": PNG rows too wide");
+            }
+            // The distance to the corresponding byte of the previous pixel,
+            // which filters predict from.
+            int pixelBytes = Math.max(1, channels * bitDepth / 8);
+
+            PngPixels pixels = new PngPixels(colorType, bitDepth, palette, transparency, threshold);
+            RowRunMerger merger = new RowRunMerger();
+            byte[] row = new byte[(int) rowBytes];
+            byte[] previous = new byte[(int) rowBytes];
+            try (DataInputStream data = new DataInputStream(new InflaterInputStream(
+                    new ImageData(in, length), new Inflater(), 1 << 16))) {
+                for (int y = 0; y < height; y++) {
+                    int filter = data.readUnsignedByte();
+                    data.readFully(row);
+                    unfilter(path, filter, row, previous, pixelBytes);
+
+                    int runStart = -1;
+                    for (int x = 0; x < width; x++) {
+                        if (pixels.occupied(row, x)) {
+                            if (runStart < 0) {
+                                runStart = x;
+                            }
+                        } else if (runStart >= 0) {
+                            merger.addRun(runStart, x);
+                            runStart = -1;
+                        }
+                    }
+                    if (runStart >= 0) {
+                        merger.addRun(runStart, width);
+                    }
+                    merger.endRow();
+
+                    byte[] swap = previous;
+                    previous = row;
+                    row = swap;
+                }
+            } catch (EOFException e) {
+                throw new IOException(path + ": truncated PNG image data", e);
+            }
+            return toMap(path, width, height, merger);
+        }
+    }
+
+    /**
+     * Reverses the PNG filter applied to a row, in place.
+     */
+    private static void unfilter(Path path, int filter, byte[] row, byte[] previous, int bpp)
+            throws IOException {
+        switch (filter) {
+            case 0:
+                break;
+            case 1: // Sub
+                for (int i = bpp; i < row.length; i++) {
+                    row[i] += row[i - bpp];
+                }
+                break;
+            case 2: // Up
+                for (int i = 0; i < row.length; i++) {
+                    row[i] += previous[i];
+                }
+                break;
+            case 3: // Average
+                for (int i = 0; i < row.length; i++) {
+                    int left = i >= bpp ? row[i - bpp] & 0xff : 0;
+                    row[i] += (left + (previous[i] & 0xff)) >>> 1;
+                }
+                break;
+            case 4: // Paeth
+                for (int i = 0; i < row.length; i++) {
+                    int a = i >= bpp ? row[i - bpp] & 0xff : 0;
+                    int b = previous[i] & 0xff;
+                    int c = i >= bpp ? previous[i - bpp] & 0xff : 0;
+                    int p = a + b - c;
+                    int pa = Math.abs(p - a);
+                    int pb = Math.abs(p - b);
+                    int pc = Math.abs(p - c);
+                    row[i] += pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+                }
+                break;
+            default:
+                throw new IOException(path + ": invalid PNG filter " + filter);
+        }
+    }
+
+    private static Map readWithImageIo(Path path, int threshold) throws IOException {
+        BufferedImage image = ImageIO.read(path.toFile());
+        if (image == null) {
+            throw new IOException(path + ": unreadable image");
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        // Gray images convert to RGB through a linear color space, which
+        // would shift the threshold, so their samples are read directly.
+        ColorModel model = image.getColorModel();
+        boolean grayscale = !(model instanceof IndexColorModel)
+                && model.getColorSpace().getType() == ColorSpace.TYPE_GRAY;
+        int grayBits = model.getComponentSize(0);
+        int alphaBits = model.hasAlpha() ? model.getComponentSize(1) : 0;
+        Raster raster = image.getRaster();
+        int[] argb = new int[width];
+        RowRunMerger merger = new RowRunMerger();
+        for (int y = 0; y < height; y++) {
+            if (!grayscale) {
+                image.getRGB(0, y, width, 1, argb, 0, width);
+            }
+            int runStart = -1;
+            for (int x = 0; x < width; x++) {
+                boolean occupied;
+                if (grayscale) {
+                    occupied = (alphaBits == 0
+                            || raster.getSample(x, y, 1) >>> (alphaBits - 8) >= 128)
+                            && raster.getSample(x, y, 0) * 255 / ((1 << grayBits) - 1) < threshold;
+                } else {
+                    int c = argb[x];
+                    occupied = c >>> 24 >= 128
+                            && gray(c >> 16 & 0xff, c >> 8 & 0xff, c & 0xff) < threshold;
+                }
+                if (occupied) {
+                    if (runStart < 0) {
+                        runStart = x;
+                    }
+                } else if (runStart >= 0) {
+                    merger.addRun(runStart, x);
+                    runStart = -1;
+                }
+            }
+            if (runStart >= 0) {
+                merger.addRun(runStart, width);
+            }
+            merger.endRow();
+        }
+        return toMap(path, width, height, merger);
+    }
+
+    private static Map toMap(Path path, int width, int height, RowRunMerger merger)
+            throws IOException {
+        try {
+            return new Map(width, height, merger.finish());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(path + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static int gray(int r, int g, int b) {
+        return (299 * r + 587 * g + 114 * b) / 1000;
+    }
+
+    /**
+     * Classifies the pixels of an unfiltered PNG row.
+     */
+    private static final class PngPixels {
+        private final int colorType;
+        private final int bitDepth;
+        private final int threshold;
+        // For palette images, whether each entry is occupied.
+        private final boolean[] occupiedEntry;
+        // For gray images, the sample value marked transparent, or -1.
+        private final int transparentGray;
+        // For truecolor images without alpha, the red, green and blue
+        // samples marked transparent, or null.
+        private final int[] transparentRgb;
+
+        PngPixels(int colorType, int bitDepth, byte[] palette, byte[] transparency,
+                int threshold) {
+            this.colorType = colorType;
+            this.bitDepth = bitDepth;
+            this.threshold = threshold;
+            if (colorType == 3) {
+                this.occupiedEntry = new boolean[256];
+                for (int i = 0; i < palette.length / 3; i++) {
+                    int alpha = transparency != null && i < transparency.length
+                            ? transparency[i] & 0xff
+                            : 255;
+                    this.occupiedEntry[i] = alpha >= 128 && gray(palette[3 * i] & 0xff,
+                            palette[3 * i + 1] & 0xff, palette[3 * i + 2] & 0xff) < threshold;
+                }
+            } else {
+                this.occupiedEntry = null;
+            }
+            this.transparentGray = colorType == 0 && transparency != null && transparency.length >= 2
+                    ? (transparency[0] & 0xff) << 8 | (transparency[1] & 0xff)
+                    : -1;
+            if (colorType == 2 && transparency != null && transparency.length >= 6) {
+                // Each key sample is two bytes, whatever the bit depth.
+                this.transparentRgb = new int[3];
+                for (int c = 0; c < 3; c++) {
+                    this.transparentRgb[c] = (transparency[2 * c] & 0xff) << 8
+                            | (transparency[2 * c + 1] & 0xff);
+                }
+            } else {
+                this.transparentRgb = null;
+            }
+        }
+
+        boolean occupied(byte[] row, int x) {
+            if (this.colorType == 0) {
+                int sample = sample(row, x);
+                return sample != this.transparentGray && scale(sample) < this.threshold;
+            }
+            if (this.colorType == 3) {
+                return this.occupiedEntry[sample(row, x)];
+            }
+            // Direct color channels are 8 or 16 bits; the high byte of each
+            // is enough to classify them.
+            int step = this.bitDepth / 8;
+            if (this.colorType == 4) {
+                int i = 2 * x * step;
+                return (row[i + step] & 0xff) >= 128 && (row[i] & 0xff) < this.threshold;
+            }
+            int i = (this.colorType == 2 ? 3 : 4) * x * step;
+            if (this.colorType == 6 && (row[i + 3 * step] & 0xff) < 128) {
+                return false;
+            }
+            if (this.transparentRgb != null && channel(row, i, step) == this.transparentRgb[0]
+                    && channel(row, i + step, step) == this.transparentRgb[1]
+                    && channel(row, i + 2 * step, step) == this.transparentRgb[2]) {
+                return false;
+            }
+            return gray(row[i] & 0xff, row[i + step] & 0xff, row[i + 2 * step] & 0xff)
+                    < this.threshold;
+        }
+
+        /**
+         * @return the full 8 or 16 bit channel sample starting at byte i
+         */
+        private static int channel(byte[] row, int i, int step) {
+            return step == 1 ? row[i] & 0xff : (row[i] & 0xff) << 8 | (row[i + 1] & 0xff);
+        }
+
+        /**
+         * @return the x-th single-channel sample of a row
+         */
+        private int sample(byte[] row, int x) {
+            switch (this.bitDepth) {
+                case 8:
+                    return row[x] & 0xff;
+                case 16:
+                    return (row[2 * x] & 0xff) << 8 | (row[2 * x + 1] & 0xff);
+                default:
+                    int perByte = 8 / this.bitDepth;
+                    int shift = 8 - this.bitDepth * (x % perByte + 1);
+                    return (row[x / perByte] & 0xff) >>> shift & (1 << this.bitDepth) - 1;
+            }
+        }
+
+        /**
+         * @return a gray sample scaled to 0-255
+         */
+        private int scale(int sample) {
+            switch (this.bitDepth) {
+                case 8:
+                    return sample;
+                case 16:
+                    return sample >>> 8;
+                default:
+                    return sample * 255 / ((1 << this.bitDepth) - 1);
+            }
+        }
+    }
+
+    /**
+     * The contents of consecutive IDAT chunks as one stream, starting inside
+     * the first. Reading stops at the first other chunk.
+     */
+    private static final class ImageData extends InputStream {
+        private final DataInputStream in;
+        private int remaining;
+        private boolean done;
+
+        ImageData(DataInputStream in, int firstLength) {
+            this.in = in;
+            this.remaining = firstLength;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (this.remaining == 0) {
+                if (this.done) {
+                    return -1;
+                }
+                this.in.skipNBytes(4); // CRC
+                int length = this.in.readInt();
+                if (this.in.readInt() != IDAT) {
+                    this.done = true;
+                    return -1;
+                }
+                this.remaining = length;
+            }
+            int n = this.in.read(b, off, Math.min(len, this.remaining));
+            if (n < 0) {
+                throw new EOFException();
+            }
+            this.remaining -= n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            // The underlying stream is closed by the reader.
+        }
+    }
+}
@@ -0,0 +1,735 @@
+package robotgraphgen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import jdk.jfr.EventType;
+
+/**
+ * Answers start-to-goal queries over a roadmap with A*. The start and goal
+ * are joined to the roadmap the way construction joins vertices: each is
+ * connected to its k closest vertices within r that it has a valid edge to.
+ * The search then uses the straight-line distance to the goal as its
+ * heuristic, which never overestimates, so the paths found are the shortest
+ * the roadmap allows.
+ *
+ * The open set is an indexed binary heap over vertex ids, and all per-query
+ * state lives in buffers that each thread allocates on its first query and
+ * reuses afterwards, so a query allocates only the path it returns. A
+ * planner may be shared by any number of threads.
+ *
+ * Roadmaps built with lazy edges have their edges checked as the search
+ * first relaxes them, with results shared between queries.
+ *
+ * Given a LandmarkOracle, the planner takes the larger of the straight-line
+ * distance and the landmark lower bound as its heuristic, which steers the
+ * search around obstacles and expands far fewer vertices. Reading landmark
+ * distances makes each expansion dearer, though, so this pays off for
+ * queries spanning a good part of the map rather than short hops. The
+ * oracle also lets distanceBounds estimate a query's path length without
+ * searching.
+ *
+ * Many queries can be answered at once with planBatch, which spreads them
+ * across worker threads and answers all queries from a common start with a
+ * single Dijkstra search.
+ */
+public class PathPlanner {
+    // How many landmarks each search uses, chosen for the tightest bounds at
+    // its start, since evaluating every landmark at every vertex would cost
+    // more than the tighter bounds save.
+    private static final int ACTIVE_LANDMARKS = 4;
+    // Checked before creating a query event, so queries allocate nothing
+    // for Flight Recorder unless it is recording them.
+    private static final EventType QUERY_EVENTS = EventType.getEventType(PathQueryEvent.class);
+
+    private final CompactGraph graph;
+    private final Map map;
+    private final int k;
+    // The most links an end point can get: k, or every vertex if k is larger.
+    private final int maxLinks;
+    private final double r;
+    private final GraphOptions.EdgeCheck edgeCheck;
+    private final LazyEdges edges;
+    private final KdTree index;
+    // Landmark distances for a tighter heuristic, or null.
+    private final LandmarkOracle oracle;
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * @param graph      the roadmap
+     * @param map        the map the roadmap was built on
+     * @param parameters the parameters the roadmap was built with
+     */
+    public PathPlanner(CompactGraph graph, Map map, BuildParameters parameters) {
+        this(graph, map, parameters, null);
+    }
+
+    /**
+     * @param graph      the roadmap
+     * @param map        the map the roadmap was built on
+     * @param parameters the parameters the roadmap was built with
+     * @param oracle     landmark distances for the roadmap, or null
+     */
+    public PathPlanner(CompactGraph graph, Map map, BuildParameters parameters,
+            LandmarkOracle oracle) {
+        if (oracle != null && !oracle.matches(graph)) {
+            throw new IllegalArgumentException("Landmark oracle was built for a different roadmap");
+        }
+        this.graph = graph;
+        this.map = map;
+        this.k = parameters.getK();
+        this.maxLinks = Math.min(this.k, graph.numVertices());
+        this.r = parameters.getR();
+        this.edgeCheck = parameters.getEdgeCheck();
+        this.edges = new LazyEdges(graph, map, parameters);
+        this.index = new KdTree(graph);
+        this.oracle = oracle;
+        int numLandmarks = oracle == null ? 0 : oracle.numLandmarks();
+        this.scratch = ThreadLocal.withInitial(
+                () -> new Scratch(graph.numVertices(), this.maxLinks, numLandmarks));
+    }
+
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the validator the planner checks edges through
+     */
+    public LazyEdges getEdges() {
+        return edges;
+    }
+
+    /**
+     * @return the landmark oracle guiding searches, or null
+     */
+    public LandmarkOracle getOracle() {
+        return oracle;
+    }
+
+    /**
+     * Finds the shortest path between two points through the roadmap.
+     *
+     * @param startX the x coordinate of the start
+     * @param startY the y coordinate of the start
+     * @param goalX  the x coordinate of the goal
+     * @param goalY  the y coordinate of the goal
+     * @return the path, or null if either point is inside an obstacle, can't
+     *         be connected to the roadmap, or the two aren't connected
+     *         through it
+     */
+    public RoadmapPath plan(double startX, double startY, double goalX, double goalY) {
+        if (!QUERY_EVENTS.isEnabled()) {
+            return search(startX, startY, goalX, goalY);
+        }
+        PathQueryEvent event = new PathQueryEvent();
+        event.begin();
+        RoadmapPath path = search(startX, startY, goalX, goalY);
+        event.end();
+        if (event.shouldCommit()) {
+            event.startX = startX;
+            event.startY = startY;
+            event.goalX = goalX;
+            event.goalY = goalY;
+            event.found = path != null;
+            event.length = path != null ? path.getLength() : Double.POSITIVE_INFINITY;
+            event.expanded = this.scratch.get().expanded;
+            event.commit();
+        }
+        return path;
+    }
+
+    private RoadmapPath search(double startX, double startY, double goalX, double goalY) {
+        Scratch s = this.scratch.get();
+        s.nextQuery();
+        if (this.map.inObstacle(startX, startY) || this.map.inObstacle(goalX, goalY)) {
+            return null;
+        }
+        int goal = this.graph.numVertices();
+        double[] start = s.start;
+        double[] end = s.end;
+        start[0] = startX;
+        start[1] = startY;
+        end[0] = goalX;
+        end[1] = goalY;
+
+        // Mark the vertices joined to the goal so expanding them can offer
+        // the goal cheaply.
+        int goalLinks = link(end, s.goalLinks, s.goalCosts, s);
+        for (int i = 0; i < goalLinks; i++) {
+            s.goalStamp[s.goalLinks[i]] = s.query;
+        }
+        int startLinks = link(start, s.startLinks, s.startCosts, s);
+        if (startLinks == 0 || goalLinks == 0) {
+            // A direct edge can still join points the roadmap can't reach.
+            return direct(start, end);
+        }
+        prepareLandmarks(s, goalLinks, startLinks);
+
+        for (int i = 0; i < startLinks; i++) {
+            int v = s.startLinks[i];
+            relax(s, v, -1, s.startCosts[i], heuristic(s, v, goalX, goalY));
+        }
+        double straight = distance(startX, startY, goalX, goalY);
+        if (straight <= this.r && Graph.edgeIsValid(start, end, this.map, this.edgeCheck)) {
+            relax(s, goal, -1, straight, 0);
+        }
+
+        while (!s.open.isEmpty()) {
+            int v = s.open.poll();
+            s.expanded++;
+            if (v == goal) {
+                return reconstruct(s.parent[goal], s.cost[goal], s, start, end);
+            }
+            s.closed[v] = s.query;
+            double gv = s.cost[v];
+
+            if (s.goalStamp[v] == s.query) {
+                for (int i = 0; i < goalLinks; i++) {
+                    if (s.goalLinks[i] == v) {
+                        relax(s, goal, v, gv + s.goalCosts[i], 0);
+                        break;
+                    }
+                }
+            }
+
+            for (int e = this.graph.edgeStart(v); e < this.graph.edgeEnd(v); e++) {
+                int u = this.graph.target(e);
+                if (s.closed[u] == s.query || !this.edges.isValid(v, e)) {
+                    continue;
+                }
+                relax(s, u, v, gv + edgeLength(v, e, u), heuristic(s, u, goalX, goalY));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bounds the length of the path plan would return, using the landmark
+     * oracle instead of a search.
+     *
+     * @param startX the x coordinate of the start
+     * @param startY the y coordinate of the start
+     * @param goalX  the x coordinate of the goal
+     * @param goalY  the y coordinate of the goal
+     * @param out    receives {lower, upper}; the upper bound is infinite if
+     *               no landmark reaches both ends
+     * @return false if either point is inside an obstacle or can't be
+     *         connected to the roadmap, in which case out is unchanged
+     */
+    public boolean distanceBounds(double startX, double startY, double goalX, double goalY,
+            double[] out) {
+        if (this.oracle == null) {
+            throw new IllegalStateException("Distance bounds need a landmark oracle");
+        }
+        if (this.map.inObstacle(startX, startY) || this.map.inObstacle(goalX, goalY)) {
+            return false;
+        }
+        Scratch s = this.scratch.get();
+        double[] start = s.start;
+        double[] end = s.end;
+        start[0] = startX;
+        start[1] = startY;
+        end[0] = goalX;
+        end[1] = goalY;
+        double straight = distance(startX, startY, goalX, goalY);
+        if (straight <= this.r && Graph.edgeIsValid(start, end, this.map, this.edgeCheck)) {
+            // Nothing is shorter than the straight line.
+            out[0] = straight;
+            out[1] = straight;
+            return true;
+        }
+        int startLinks = link(start, s.startLinks, s.startCosts, s);
+        int goalLinks = link(end, s.goalLinks, s.goalCosts, s);
+        if (startLinks == 0 || goalLinks == 0) {
+            return false;
+        }
+
+        // The heuristic bounds the rest of the way from each start link, and
+        // the closest way through each landmark gives a real path.
+        prepareLandmarks(s, goalLinks, startLinks);
+        double lower = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < startLinks; i++) {
+            lower = Math.min(lower, s.startCosts[i] + heuristic(s, s.startLinks[i], goalX, goalY));
+        }
+        double upper = Double.POSITIVE_INFINITY;
+        for (int l = 0; l < s.landmarkNear.length; l++) {
+            double toLandmark = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < startLinks; i++) {
+                toLandmark = Math.min(toLandmark,
+                        s.startCosts[i] + this.oracle.distance(l, s.startLinks[i]));
+            }
+            upper = Math.min(upper, toLandmark + s.landmarkNear[l]);
+        }
+        out[0] = lower;
+        out[1] = upper;
+        return true;
+    }
+
+    /**
+     * Answers many queries at once. Queries sharing a start point are
+     * answered together by one Dijkstra search from it, which stops once
+     * every goal's shortest path is known. Other queries are answered with
+     * A* as plan would. Either way each path is one plan would return, up to
+     * the choice between equally short paths.
+     *
+     * @param queries     the queries, each given as four consecutive values
+     *                    startX, startY, goalX, goalY
+     * @param parallelism how many threads to answer queries on
+     * @return the path for each query, in input order, with timings
+     */
+    public BatchResult planBatch(double[] queries, int parallelism) {
+        if (queries.length % 4 != 0) {
+            throw new IllegalArgumentException("Queries must be given as startX, startY, goalX, goalY");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        int count = queries.length / 4;
+        RoadmapPath[] paths = new RoadmapPath[count];
+        long[] latencies = new long[count];
+        int[][] groups = groupByStart(queries, count);
+
+        long batchStart = System.nanoTime();
+        if (parallelism > 1) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.submit(() -> IntStream.range(0, groups.length)
+                        .parallel()
+                        .forEach(g -> planGroup(groups[g], queries, paths, latencies)))
+                        .join();
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            for (int[] group : groups) {
+                planGroup(group, queries, paths, latencies);
+            }
+        }
+        return new BatchResult(paths, latencies, System.nanoTime() - batchStart);
+    }
+
+    /**
+     * @return the query indices grouped by identical start point, each group
+     *         in increasing order
+     */
+    private static int[][] groupByStart(double[] queries, int count) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byX = Double.compare(queries[4 * a], queries[4 * b]);
+            if (byX != 0) {
+                return byX;
+            }
+            int byY = Double.compare(queries[4 * a + 1], queries[4 * b + 1]);
+            return byY != 0 ? byY : Integer.compare(a, b);
+        });
+
+        List<int[]> groups = new ArrayList<>();
+        int first = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i == count
+                    || Double.compare(queries[4 * order[i]], queries[4 * order[first]]) != 0
+                    || Double.compare(queries[4 * order[i] + 1], queries[4 * order[first] + 1]) != 0) {
+                int[] group = new int[i - first];
+                for (int j = first; j < i; j++) {
+                    group[j - first] = order[j];
+                }
+                groups.add(group);
+                first = i;
+            }
+        }
+        return groups.toArray(new int[0][]);
+    }
+
+    private void planGroup(int[] group, double[] queries, RoadmapPath[] paths, long[] latencies) {
+        long start = System.nanoTime();
+        if (group.length == 1) {
+            int q = group[0];
+            paths[q] = plan(queries[4 * q], queries[4 * q + 1], queries[4 * q + 2], queries[4 * q + 3]);
+            latencies[q] = System.nanoTime() - start;
+        } else {
+            planFromStart(group, queries, paths, latencies, start);
+        }
+    }
+
+    /**
+     * Answers queries that share a start point with one Dijkstra search.
+     * Each goal keeps the cheapest way found so far to reach it through one
+     * of its links, and the search stops once it has settled every vertex
+     * closer than all of those.
+     */
+    private void planFromStart(int[] group, double[] queries, RoadmapPath[] paths,
+            long[] latencies, long startNanos) {
+        int count = group.length;
+        double startX = queries[4 * group[0]];
+        double startY = queries[4 * group[0] + 1];
+        if (this.map.inObstacle(startX, startY)) {
+            for (int q : group) {
+                latencies[q] = System.nanoTime() - startNanos;
+            }
+            return;
+        }
+
+        Scratch s = this.scratch.get();
+        s.nextQuery();
+        double[] start = s.start;
+        start[0] = startX;
+        start[1] = startY;
+        int startLinks = link(start, s.startLinks, s.startCosts, s);
+
+        // Links from each roadmap vertex to the goals it was joined to, as
+        // linked lists threaded through these arrays.
+        int maxGoalLinks = Math.multiplyExact(count, this.maxLinks);
+        int[] linkNext = new int[maxGoalLinks];
+        int[] linkGoal = new int[maxGoalLinks];
+        double[] linkCost = new double[maxGoalLinks];
+        int links = 0;
+        double[] best = new double[count];
+        // The last roadmap vertex on each goal's best path, -1 for a direct
+        // edge from the start, or -2 if the goal hasn't been reached.
+        int[] bestVia = new int[count];
+        int unreached = 0;
+
+        double[] end = s.end;
+        for (int j = 0; j < count; j++) {
+            int q = group[j];
+            end[0] = queries[4 * q + 2];
+            end[1] = queries[4 * q + 3];
+            best[j] = Double.POSITIVE_INFINITY;
+            bestVia[j] = -2;
+            if (this.map.inObstacle(end[0], end[1])) {
+                continue;
+            }
+            double straight = distance(startX, startY, end[0], end[1]);
+            if (straight <= this.r && Graph.edgeIsValid(start, end, this.map, this.edgeCheck)) {
+                best[j] = straight;
+                bestVia[j] = -1;
+            }
+            if (startLinks == 0) {
+                continue;
+            }
+            int goalLinks = link(end, s.goalLinks, s.goalCosts, s);
+            for (int i = 0; i < goalLinks; i++) {
+                int v = s.goalLinks[i];
+                if (s.goalStamp[v] != s.query) {
+                    s.goalStamp[v] = s.query;
+                    s.linkHead[v] = -1;
+                }
+                linkGoal[links] = j;
+                linkCost[links] = s.goalCosts[i];
+                linkNext[links] = s.linkHead[v];
+                s.linkHead[v] = links++;
+            }
+            if (goalLinks > 0 && bestVia[j] == -2) {
+                unreached++;
+            }
+        }
+
+        for (int i = 0; i < startLinks; i++) {
+            relax(s, s.startLinks[i], -1, s.startCosts[i], 0);
+        }
+        double worstBest = max(best, bestVia);
+        while (!s.open.isEmpty()) {
+            if (unreached == 0 && s.open.peekKey() >= worstBest) {
+                break;
+            }
+            int v = s.open.poll();
+            s.closed[v] = s.query;
+            double gv = s.cost[v];
+
+            if (s.goalStamp[v] == s.query) {
+                for (int l = s.linkHead[v]; l >= 0; l = linkNext[l]) {
+                    int j = linkGoal[l];
+                    double cost = gv + linkCost[l];
+                    if (cost < best[j]) {
+                        if (bestVia[j] == -2) {
+                            unreached--;
+                        }
+                        boolean wasWorst = best[j] >= worstBest;
+                        best[j] = cost;
+                        bestVia[j] = v;
+                        worstBest = wasWorst ? max(best, bestVia) : worstBest;
+                    }
+                }
+            }
+
+            for (int e = this.graph.edgeStart(v); e < this.graph.edgeEnd(v); e++) {
+                int u = this.graph.target(e);
+                if (s.closed[u] == s.query || !this.edges.isValid(v, e)) {
+                    continue;
+                }
+                relax(s, u, v, gv + edgeLength(v, e, u), 0);
+            }
+        }
+
+        for (int j = 0; j < count; j++) {
+            int q = group[j];
+            if (bestVia[j] != -2) {
+                end[0] = queries[4 * q + 2];
+                end[1] = queries[4 * q + 3];
+                paths[q] = reconstruct(bestVia[j], best[j], s, start, end);
+            }
+            latencies[q] = System.nanoTime() - startNanos;
+        }
+    }
+
+    /**
+     * @return the largest of the reached goals' best costs
+     */
+    private static double max(double[] best, int[] bestVia) {
+        double max = 0;
+        for (int j = 0; j < best.length; j++) {
+            if (bestVia[j] != -2) {
+                max = Math.max(max, best[j]);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Records a path to v through parent if it's shorter than the best known
+     * one, and queues v by cost plus heuristic.
+     */
+    private void relax(Scratch s, int v, int parent, double cost, double heuristic) {
+        if (s.reached[v] == s.query && cost >= s.cost[v]) {
+            return;
+        }
+        if (heuristic == Double.POSITIVE_INFINITY) {
+            // The landmarks show the goal can't be reached from v.
+            return;
+        }
+        s.reached[v] = s.query;
+        s.cost[v] = cost;
+        s.parent[v] = parent;
+        s.open.offer(v, cost + heuristic);
+    }
+
+    /**
+     * Summarizes the goal's links for each landmark, so the heuristic can
+     * bound the distance to the goal through any of them. For landmark l,
+     * with links g_i at cost c_i, the distance from v to the goal is at
+     * least d(l, v) - max(d(l, g_i) - c_i) and min(d(l, g_i) + c_i) - d(l, v).
+     * The landmarks giving the largest bounds at the first start link are
+     * made active.
+     */
+    private void prepareLandmarks(Scratch s, int goalLinks, int startLinks) {
+        if (this.oracle == null) {
+            return;
+        }
+        for (int l = 0; l < s.landmarkFar.length; l++) {
+            double far = Double.NEGATIVE_INFINITY;
+            double near = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < goalLinks; i++) {
+                double d = this.oracle.distance(l, s.goalLinks[i]);
+                far = Math.max(far, d - s.goalCosts[i]);
+                near = Math.min(near, d + s.goalCosts[i]);
+            }
+            // A landmark that can't reach every link can't bound paths into
+            // the ones it misses.
+            s.landmarkFar[l] = far == Double.POSITIVE_INFINITY ? Double.NaN : far;
+            s.landmarkNear[l] = near;
+        }
+
+        // Keep the active landmarks sorted by decreasing bound, inserting
+        // each landmark in turn.
+        s.numActive = 0;
+        int from = s.startLinks[0];
+        for (int l = 0; l < s.landmarkFar.length; l++) {
+            double bound = landmarkBound(s, l, from);
+            if (Double.isNaN(bound)) {
+                continue;
+            }
+            int i = Math.min(s.numActive, s.active.length - 1);
+            if (s.numActive == s.active.length && bound <= s.activeBound[i]) {
+                continue;
+            }
+            for (; i > 0 && s.activeBound[i - 1] < bound; i--) {
+                s.active[i] = s.active[i - 1];
+                s.activeBound[i] = s.activeBound[i - 1];
+            }
+            s.active[i] = l;
+            s.activeBound[i] = bound;
+            s.numActive = Math.min(s.numActive + 1, s.active.length);
+        }
+    }
+
+    /**
+     * @return landmark l's lower bound on the distance from v to the goal,
+     *         infinity if the landmark shows v can't reach it, or NaN if the
+     *         landmark can't bound it
+     */
+    private double landmarkBound(Scratch s, int l, int v) {
+        double far = s.landmarkFar[l];
+        if (Double.isNaN(far)) {
+            return Double.NaN;
+        }
+        double d = this.oracle.distance(l, v);
+        if (d == Double.POSITIVE_INFINITY) {
+            // The landmark reaches every goal link but not v.
+            return Double.POSITIVE_INFINITY;
+        }
+        double near = s.landmarkNear[l];
+        return Math.max(d - far - LandmarkOracle.slack(d, far),
+                near - d - LandmarkOracle.slack(near, d));
+    }
+
+    /**
+     * @return a lower bound on the distance from v to the goal
+     */
+    private double heuristic(Scratch s, int v, double goalX, double goalY) {
+        double h = distance(this.graph.x(v), this.graph.y(v), goalX, goalY);
+        if (this.oracle == null) {
+            return h;
+        }
+        for (int i = 0; i < s.numActive; i++) {
+            h = Math.max(h, landmarkBound(s, s.active[i], v));
+        }
+        return h;
+    }
+
+    /**
+     * @return the length of edge e from v to u
+     */
+    private double edgeLength(int v, int e, int u) {
+        return this.graph.hasWeights()
+                ? this.graph.weight(e)
+                : distance(this.graph.x(v), this.graph.y(v), this.graph.x(u), this.graph.y(u));
+    }
+
+    /**
+     * Finds the closest roadmap vertices, at most k, within r of point that
+     * it has valid edges to.
+     *
+     * @return how many were written to links, with their distances in costs
+     */
+    private int link(double[] point, int[] links, double[] costs, Scratch s) {
+        this.index.withinRadius(point[0], point[1], this.r, -1, s.inRange);
+        int found = 0;
+        double[] other = s.other;
+        for (int i = 0; i < s.inRange.size() && found < this.k; i++) {
+            int v = s.inRange.get(i);
+            other[0] = this.graph.x(v);
+            other[1] = this.graph.y(v);
+            if (Graph.edgeIsValid(point, other, this.map, this.edgeCheck)) {
+                links[found] = v;
+                costs[found] = distance(point[0], point[1], other[0], other[1]);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private RoadmapPath direct(double[] start, double[] end) {
+        double length = distance(start[0], start[1], end[0], end[1]);
+        if (length > this.r || !Graph.edgeIsValid(start, end, this.map, this.edgeCheck)) {
+            return null;
+        }
+        return new RoadmapPath(new double[] { start[0], start[1], end[0], end[1] },
+                new int[] { -1, -1 }, length);
+    }
+
+    /**
+     * @param last   the last roadmap vertex before the goal, or -1 if the
+     *               path is a direct edge
+     * @param length the length of the whole path
+     */
+    private RoadmapPath reconstruct(int last, double length, Scratch s, double[] start,
+            double[] end) {
+        int count = 0;
+        for (int v = last; v >= 0; v = s.parent[v]) {
+            count++;
+        }
+        double[] coordinates = new double[2 * (count + 2)];
+        int[] vertices = new int[count + 2];
+        coordinates[0] = start[0];
+        coordinates[1] = start[1];
+        vertices[0] = -1;
+        int i = count;
+        for (int v = last; v >= 0; v = s.parent[v], i--) {
+            coordinates[2 * i] = this.graph.x(v);
+            coordinates[2 * i + 1] = this.graph.y(v);
+            vertices[i] = v;
+        }
+        coordinates[2 * (count + 1)] = end[0];
+        coordinates[2 * (count + 1) + 1] = end[1];
+        vertices[count + 1] = -1;
+        return new RoadmapPath(coordinates, vertices, length);
+    }
+
+    static double distance(double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * One thread's search state. Entries are only meaningful where their
+     * stamp matches the current query, so nothing has to be cleared between
+     * queries.
+     */
+    private static class Scratch {
+        // Vertex ids run over the roadmap, plus one more for the goal.
+        final IndexedMinHeap open;
+        final double[] cost;
+        final int[] parent;
+        final int[] reached;
+        final int[] closed;
+        final int[] goalStamp;
+        final int[] linkHead;
+
+        final KdTree.Neighbors inRange = new KdTree.Neighbors(16);
+        final double[] start = new double[2];
+        final double[] end = new double[2];
+        final double[] other = new double[2];
+        final int[] startLinks;
+        final double[] startCosts;
+        final int[] goalLinks;
+        final double[] goalCosts;
+        final double[] landmarkFar;
+        final double[] landmarkNear;
+        final int[] active;
+        final double[] activeBound;
+        int numActive;
+
+        int query;
+        // Vertices the current query has taken off the open set.
+        int expanded;
+
+        Scratch(int numVertices, int maxLinks, int numLandmarks) {
+            this.open = new IndexedMinHeap(numVertices + 1);
+            this.cost = new double[numVertices + 1];
+            this.parent = new int[numVertices + 1];
+            this.reached = new int[numVertices + 1];
+            this.closed = new int[numVertices + 1];
+            this.goalStamp = new int[numVertices + 1];
+            this.linkHead = new int[numVertices + 1];
+            this.startLinks = new int[maxLinks];
+            this.startCosts = new double[maxLinks];
+            this.goalLinks = new int[maxLinks];
+            this.goalCosts = new double[maxLinks];
+            this.landmarkFar = new double[numLandmarks];
+            this.landmarkNear = new double[numLandmarks];
+            this.active = new int[Math.min(numLandmarks, ACTIVE_LANDMARKS)];
+            this.activeBound = new double[this.active.length];
+        }
+
+        void nextQuery() {
+            this.open.clear();
+            this.expanded = 0;
+            this.query++;
+            if (this.query == 0) {
+                // The stamps wrapped around, so old ones could match again.
+                Arrays.fill(this.reached, 0);
+                Arrays.fill(this.closed, 0);
+                Arrays.fill(this.goalStamp, 0);
+                this.query = 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package robotgraphgen;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event spanning one PathPlanner query.
+ */
+@Name("robotgraphgen.PathQuery")
+@Label("Roadmap Path Query")
+@Category("RobotGraphGen")
+@Description("A shortest path search through a roadmap")
+final class PathQueryEvent extends Event {
+    @Label("Start X")
+    double startX;
+
+    @Label("Start Y")
+    double startY;
+
+    @Label("Goal X")
+    double goalX;
+
+    @Label("Goal Y")
+    double goalY;
+
+    @Label("Found")
+    boolean found;
+
+    @Label("Length")
+    double length;
+
+    @Label("Expanded")
+    @Description("Vertices taken off the open set")
+    int expanded;
+}
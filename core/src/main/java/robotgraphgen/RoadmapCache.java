@@ -0,0 +1,365 @@
+package robotgraphgen;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches built roadmaps by the parameters that determine them, so identical
+ * requests only pay for construction once.
+ *
+ * Lookups check an in-process LRU tier, then an optional on-disk tier of
+ * RoadmapFiles named by a hash of their parameters, and only build the graph
+ * if both miss. Both tiers evict least recently used roadmaps once they grow
+ * past their byte limits. Concurrent requests for the same roadmap share a
+ * single build.
+ */
+public class RoadmapCache {
+    private static final String EXTENSION = ".rgg";
+
+    private final long maxMemoryBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+
+    // Guarded by this.
+    private final LinkedHashMap<BuildParameters, CompactGraph> memory;
+    private long memoryBytes;
+
+    private final ConcurrentHashMap<BuildParameters, CompletableFuture<CompactGraph>> building;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong memoryEvictions = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+    private final AtomicLong diskErrors = new AtomicLong();
+    private final AtomicLong buildNanos = new AtomicLong();
+
+    /**
+     * Creates a cache that only keeps roadmaps in memory.
+     *
+     * @param maxMemoryBytes the approximate size the memory tier may grow to
+     */
+    public RoadmapCache(long maxMemoryBytes) {
+        this(maxMemoryBytes, null, 0);
+    }
+
+    /**
+     * @param maxMemoryBytes the approximate size the memory tier may grow to
+     * @param directory      where to keep roadmap files, or null for no disk
+     *                       tier
+     * @param maxDiskBytes   the total size the roadmap files may grow to
+     */
+    public RoadmapCache(long maxMemoryBytes, Path directory, long maxDiskBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true);
+        this.building = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the roadmap new Graph(map, k, r, options) would build, building
+     * it only if no tier has it.
+     *
+     * @return the roadmap in compact form
+     */
+    public CompactGraph get(Map map, int k, double r, GraphOptions options) {
+        BuildParameters key = BuildParameters.of(map, k, r, options);
+
+        CompactGraph cached = fromMemory(key);
+        if (cached != null) {
+            this.memoryHits.incrementAndGet();
+            return cached;
+        }
+
+        CompletableFuture<CompactGraph> future = new CompletableFuture<>();
+        CompletableFuture<CompactGraph> existing = this.building.putIfAbsent(key, future);
+        if (existing != null) {
+            // Someone else is already loading or building this roadmap.
+            return existing.join();
+        }
+
+        try {
+            // Another thread may have finished between the memory check and
+            // claiming the key.
+            CompactGraph graph = fromMemory(key);
+            if (graph != null) {
+                this.memoryHits.incrementAndGet();
+            } else {
+                graph = fromDisk(key);
+                if (graph != null) {
+                    this.diskHits.incrementAndGet();
+                } else {
+                    this.misses.incrementAndGet();
+                    long start = System.nanoTime();
+                    // A cached build has no one to report to.
+                    Graph built = new Graph(map, k, r,
+                            new GraphOptions(options).reportUnderConnected(false));
+                    graph = built.compact();
+                    this.buildNanos.addAndGet(System.nanoTime() - start);
+                    toDisk(key, graph);
+                }
+                toMemory(key, graph);
+            }
+            future.complete(graph);
+            return graph;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.building.remove(key);
+        }
+    }
+
+    /**
+     * Empties the memory tier. Roadmap files are left in place.
+     */
+    public synchronized void clearMemory() {
+        this.memory.clear();
+        this.memoryBytes = 0;
+    }
+
+    public Stats stats() {
+        synchronized (this) {
+            return new Stats(this.memoryHits.get(), this.diskHits.get(), this.misses.get(),
+                    this.memoryEvictions.get(), this.diskEvictions.get(), this.diskErrors.get(),
+                    this.buildNanos.get(), this.memory.size(), this.memoryBytes);
+        }
+    }
+
+    private synchronized CompactGraph fromMemory(BuildParameters key) {
+        return this.memory.get(key);
+    }
+
+    private synchronized void toMemory(BuildParameters key, CompactGraph graph) {
+        long size = sizeOf(graph);
+        if (size > this.maxMemoryBytes) {
+            return;
+        }
+        if (this.memory.put(key, graph) == null) {
+            this.memoryBytes += size;
+        }
+
+        Iterator<java.util.Map.Entry<BuildParameters, CompactGraph>> eldest =
+                this.memory.entrySet().iterator();
+        while (this.memoryBytes > this.maxMemoryBytes && eldest.hasNext()) {
+            CompactGraph evicted = eldest.next().getValue();
+            eldest.remove();
+            this.memoryBytes -= sizeOf(evicted);
+            this.memoryEvictions.incrementAndGet();
+        }
+    }
+
+    private CompactGraph fromDisk(BuildParameters key) {
+        if (this.directory == null) {
+            return null;
+        }
+        Path file = fileFor(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            RoadmapFile loaded = RoadmapFile.load(file);
+            if (!loaded.getParameters().equals(key)) {
+                // Only possible on a hash collision, so treat it as a miss.
+                return null;
+            }
+            // Keep the modification time as the recency for eviction.
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return loaded.getGraph();
+        } catch (IOException e) {
+            this.diskErrors.incrementAndGet();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // The next write will replace it anyway.
+            }
+            return null;
+        }
+    }
+
+    private void toDisk(BuildParameters key, CompactGraph graph) {
+        if (this.directory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(this.directory);
+            // Write to a temporary file and move it into place so readers
+            // never see a partial roadmap.
+            Path temp = Files.createTempFile(this.directory, "roadmap", ".tmp");
+            try {
+                RoadmapFile.write(temp, graph, key);
+                Files.move(temp, fileFor(key), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            evictFromDisk(fileFor(key));
+        } catch (IOException e) {
+            this.diskErrors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Deletes the least recently used roadmap files until the tier fits in
+     * its limit.
+     *
+     * @param keep a file not to delete, since it was just written
+     */
+    private synchronized void evictFromDisk(Path keep) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                if (!file.equals(keep)) {
+                    files.add(file);
+                }
+            }
+        }
+
+        long total = Files.size(keep);
+        java.util.Map<Path, FileTime> times = new java.util.HashMap<>();
+        for (Path file : files) {
+            total += Files.size(file);
+            times.put(file, Files.getLastModifiedTime(file));
+        }
+        files.sort(Comparator.comparing(times::get));
+
+        for (Iterator<Path> it = files.iterator(); total > this.maxDiskBytes && it.hasNext();) {
+            Path file = it.next();
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) {
+                total -= size;
+                this.diskEvictions.incrementAndGet();
+            }
+        }
+    }
+
+    private Path fileFor(BuildParameters key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                name.append(String.format("%02x", digest[i]));
+            }
+            return this.directory.resolve(name + EXTENSION);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the approximate number of bytes the graph's arrays occupy
+     */
+    private static long sizeOf(CompactGraph graph) {
+        long edgeBytes = graph.hasWeights() ? 8L : 4L;
+        return 16L * graph.numVertices() + 4L * (graph.numVertices() + 1)
+                + edgeBytes * graph.numEdges();
+    }
+
+    /**
+     * A snapshot of the cache's counters.
+     */
+    public static class Stats {
+        private final long memoryHits;
+        private final long diskHits;
+        private final long misses;
+        private final long memoryEvictions;
+        private final long diskEvictions;
+        private final long diskErrors;
+        private final long buildNanos;
+        private final int memoryEntries;
+        private final long memoryBytes;
+
+        Stats(long memoryHits, long diskHits, long misses, long memoryEvictions,
+                long diskEvictions, long diskErrors, long buildNanos,
+                int memoryEntries, long memoryBytes) {
+            this.memoryHits = memoryHits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.memoryEvictions = memoryEvictions;
+            this.diskEvictions = diskEvictions;
+            this.diskErrors = diskErrors;
+            this.buildNanos = buildNanos;
+            this.memoryEntries = memoryEntries;
+            this.memoryBytes = memoryBytes;
+        }
+
+        public long getMemoryHits() {
+            return memoryHits;
+        }
+
+        public long getDiskHits() {
+            return diskHits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getMemoryEvictions() {
+            return memoryEvictions;
+        }
+
+        public long getDiskEvictions() {
+            return diskEvictions;
+        }
+
+        /**
+         * @return how many disk reads or writes failed and fell back to
+         *         building or skipping the disk tier
+         */
+        public long getDiskErrors() {
+            return diskErrors;
+        }
+
+        /**
+         * @return the total time spent building roadmaps on misses
+         */
+        public long getBuildNanos() {
+            return buildNanos;
+        }
+
+        public int getMemoryEntries() {
+            return memoryEntries;
+        }
+
+        public long getMemoryBytes() {
+            return memoryBytes;
+        }
+
+        /**
+         * @return the fraction of lookups served by either tier
+         */
+        public double hitRate() {
+            long hits = this.memoryHits + this.diskHits;
+            long total = hits + this.misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "memoryHits=%d diskHits=%d misses=%d memoryEvictions=%d diskEvictions=%d"
+                            + " diskErrors=%d buildMs=%.1f memoryEntries=%d memoryBytes=%d",
+                    memoryHits, diskHits, misses, memoryEvictions, diskEvictions,
+                    diskErrors, buildNanos / 1e6, memoryEntries, memoryBytes);
+        }
+    }
+}
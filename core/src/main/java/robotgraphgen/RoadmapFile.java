@@ -0,0 +1,267 @@
+package robotgraphgen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes roadmaps in a versioned binary format. Loading maps the
+ * file into memory and reads the graph straight out of the mapping, so a
+ * large roadmap opens without being copied onto the heap, and processes on
+ * one host that load the same file share its pages.
+ *
+ * All values are little-endian. The file is a 128 byte header followed by
+ * the arrays of a CompactGraph:
+ *
+ * <pre>
+ *   0  int    magic "RGGR"
+ *   4  int    format version
+ *   8  int    flags (bit 0: edge weights present, bit 1: edges unchecked)
+ *  12  int    vertex count n
+ *  16  int    directed edge count m
+ *  20  int    k
+ *  24  double r
+ *  32  int    requested vertex count
+ *  36  int    Halton base p
+ *  40  int    Halton base q
+ *  44  int    1 if the Halton sequence was scrambled
+ *  48  long   scramble seed
+ *  56  int    edge check (0 sampled, 1 exact, 2 clearance)
+ *  60  int    densify budget
+ *  64  long   map content hash
+ *  72  double tile size, or 0 if built as a single graph
+ *  80  int    sampling (0 uniform, 1 free space, 2 gaussian, 3 bridge)
+ *  88  double occupancy bitmap cell size, or 0 if obstacles were exact
+ * 128  double coordinates[2n]
+ *      int    offsets[n + 1]
+ *      int    targets[m]
+ *      float  weights[m], if present
+ * </pre>
+ *
+ * The fields at 60, 72, 80 and 88 were added after version 1 was first
+ * written, in what had been reserved zero padding, so the version wasn't
+ * bumped. A file written before them reads as built without densification,
+ * as a single graph, with uniform sampling and on an unrasterized map,
+ * which is how it was built.
+ *
+ * Loading checks that the offsets run from 0 to m without decreasing and
+ * that every target is a vertex, so a damaged file fails to load instead of
+ * sending searches out of bounds.
+ */
+public class RoadmapFile {
+    public static final int MAGIC = 0x52474752; // "RGGR"
+    public static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 128;
+    private static final int FLAG_WEIGHTS = 1;
+    private static final int FLAG_LAZY_EDGES = 2;
+
+    private final BuildParameters parameters;
+    private final CompactGraph graph;
+
+    private RoadmapFile(BuildParameters parameters, CompactGraph graph) {
+        this.parameters = parameters;
+        this.graph = graph;
+    }
+
+    public BuildParameters getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return the roadmap, backed by the file's memory mapping
+     */
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Writes a roadmap and the parameters it was built with.
+     *
+     * @param path       the file to write, replacing any existing file
+     * @param graph      the roadmap
+     * @param parameters the parameters the roadmap was built with
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path path, CompactGraph graph, BuildParameters parameters)
+            throws IOException {
+        int n = graph.numVertices();
+        int m = graph.numEdges();
+        long size = fileSize(n, m, graph.hasWeights());
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Roadmap too large for a single mapping: " + size + " bytes");
+        }
+
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            putHeader(out, n, m, graph.hasWeights(), parameters);
+
+            int position = HEADER_SIZE;
+            section(out, position, 8L * 2 * n).asDoubleBuffer().put(graph.coordinateBuffer());
+            position += 8 * 2 * n;
+            section(out, position, 4L * (n + 1)).asIntBuffer().put(graph.offsetBuffer());
+            position += 4 * (n + 1);
+            section(out, position, 4L * m).asIntBuffer().put(graph.targetBuffer());
+            position += 4 * m;
+            if (graph.hasWeights()) {
+                section(out, position, 4L * m).asFloatBuffer().put(graph.weightBuffer());
+            }
+            out.force();
+        }
+    }
+
+    /**
+     * Maps a roadmap file into memory.
+     *
+     * @param path the file to load
+     * @return the roadmap and the parameters it was built with
+     * @throws IOException if the file can't be read or isn't a valid roadmap
+     */
+    public static RoadmapFile load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException(path + ": too short to be a roadmap");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + ": too large for a single mapping");
+            }
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            in.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (in.getInt(0) != MAGIC) {
+                throw new IOException(path + ": not a roadmap file");
+            }
+            if (in.getInt(4) != VERSION) {
+                throw new IOException(path + ": unsupported roadmap version " + in.getInt(4));
+            }
+            boolean hasWeights = (in.getInt(8) & FLAG_WEIGHTS) != 0;
+            int n = in.getInt(12);
+            int m = in.getInt(16);
+            if (n < 0 || m < 0 || fileSize(n, m, hasWeights) != size) {
+                throw new IOException(path + ": header doesn't match file size");
+            }
+            int edgeCheck = in.getInt(56);
+            if (edgeCheck < 0 || edgeCheck >= GraphOptions.EdgeCheck.values().length) {
+                throw new IOException(path + ": unknown edge check " + edgeCheck);
+            }
+            int sampling = in.getInt(80);
+            if (sampling < 0 || sampling >= GraphOptions.Sampling.values().length) {
+                throw new IOException(path + ": unknown sampling " + sampling);
+            }
+
+            BuildParameters parameters = new BuildParameters(
+                    in.getLong(64),
+                    in.getInt(20),
+                    in.getDouble(24),
+                    in.getInt(32),
+                    in.getInt(36),
+                    in.getInt(40),
+                    in.getInt(44) != 0,
+                    in.getLong(48),
+                    GraphOptions.EdgeCheck.values()[edgeCheck],
+                    (in.getInt(8) & FLAG_LAZY_EDGES) != 0,
+                    in.getInt(60),
+                    in.getDouble(72),
+                    GraphOptions.Sampling.values()[sampling],
+                    hasWeights,
+                    in.getDouble(88));
+
+            int position = HEADER_SIZE;
+            DoubleBuffer coordinates = section(in, position, 8L * 2 * n).asDoubleBuffer();
+            position += 8 * 2 * n;
+            IntBuffer offsets = section(in, position, 4L * (n + 1)).asIntBuffer();
+            position += 4 * (n + 1);
+            IntBuffer targets = section(in, position, 4L * m).asIntBuffer();
+            position += 4 * m;
+            FloatBuffer weights = hasWeights
+                    ? section(in, position, 4L * m).asFloatBuffer()
+                    : null;
+
+            checkAdjacency(path, n, m, offsets, targets);
+
+            try {
+                return new RoadmapFile(parameters,
+                        new CompactGraph(coordinates, offsets, targets, weights));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * @throws IOException if the offsets don't run from 0 to m without
+     *                     decreasing, or a target isn't in [0, n)
+     */
+    private static void checkAdjacency(Path path, int n, int m, IntBuffer offsets,
+            IntBuffer targets) throws IOException {
+        if (offsets.get(0) != 0 || offsets.get(n) != m) {
+            throw new IOException(path + ": offsets must run from 0 to " + m);
+        }
+        for (int v = 0; v < n; v++) {
+            if (offsets.get(v + 1) < offsets.get(v)) {
+                throw new IOException(path + ": offsets decrease at vertex " + v);
+            }
+        }
+        for (int e = 0; e < m; e++) {
+            int target = targets.get(e);
+            if (target < 0 || target >= n) {
+                throw new IOException(path + ": edge " + e + " leads to unknown vertex " + target);
+            }
+        }
+    }
+
+    /**
+     * Fills in the header at the start of out, for writers that produce the
+     * arrays themselves.
+     */
+    static void putHeader(ByteBuffer out, int n, int m, boolean hasWeights,
+            BuildParameters parameters) {
+        out.putInt(0, MAGIC);
+        out.putInt(4, VERSION);
+        out.putInt(8, (hasWeights ? FLAG_WEIGHTS : 0)
+                | (parameters.isLazyEdges() ? FLAG_LAZY_EDGES : 0));
+        out.putInt(12, n);
+        out.putInt(16, m);
+        out.putInt(20, parameters.getK());
+        out.putDouble(24, parameters.getR());
+        out.putInt(32, parameters.getNumVertices());
+        out.putInt(36, parameters.getHaltonP());
+        out.putInt(40, parameters.getHaltonQ());
+        out.putInt(44, parameters.isScrambled() ? 1 : 0);
+        out.putLong(48, parameters.getScrambleSeed());
+        out.putInt(56, parameters.getEdgeCheck().ordinal());
+        out.putInt(60, parameters.getDensifyBudget());
+        out.putLong(64, parameters.getMapHash());
+        out.putDouble(72, parameters.getTileSize());
+        out.putInt(80, parameters.getSampling().ordinal());
+        out.putDouble(88, parameters.getRasterCellSize());
+    }
+
+    static long fileSize(int n, int m, boolean hasWeights) {
+        return HEADER_SIZE + 8L * 2 * n + 4L * (n + 1) + 4L * m + (hasWeights ? 4L * m : 0);
+    }
+
+    /**
+     * @return a little-endian view of length bytes of buffer starting at
+     *         position
+     */
+    private static ByteBuffer section(ByteBuffer buffer, int position, long length) {
+        return buffer.duplicate()
+                .position(position)
+                .limit(position + (int) length)
+                .slice()
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,47 @@
+package robotgraphgen;
+
+/**
+ * A collision-free path from a start point to a goal point through a
+ * roadmap. Point 0 is the start, the last point is the goal, and the points
+ * between are roadmap vertices.
+ */
+public class RoadmapPath {
+    // Interleaved x, y coordinates of each point.
+    private final double[] coordinates;
+    // The roadmap vertex at each point, or -1 for the start and goal.
+    private final int[] vertices;
+    private final double length;
+
+    RoadmapPath(double[] coordinates, int[] vertices, double length) {
+        this.coordinates = coordinates;
+        this.vertices = vertices;
+        this.length = length;
+    }
+
+    public int numPoints() {
+        return this.vertices.length;
+    }
+
+    public double x(int i) {
+        return this.coordinates[2 * i];
+    }
+
+    public double y(int i) {
+        return this.coordinates[2 * i + 1];
+    }
+
+    /**
+     * @param i the index of a point on the path
+     * @return the roadmap vertex at point i, or -1 if it's the start or goal
+     */
+    public int vertexAt(int i) {
+        return this.vertices[i];
+    }
+
+    /**
+     * @return the total length of the path's segments
+     */
+    public double getLength() {
+        return this.length;
+    }
+}
@@ -0,0 +1,104 @@
+package robotgraphgen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Merges the occupied runs of a raster, fed one row at a time, into
+ * rectangles. A run exactly matching one in the row above extends that run's
+ * rectangle downwards, so walls and shelves become a handful of rectangles
+ * instead of one per pixel. Only the runs of the previous row are kept.
+ */
+final class RowRunMerger {
+    private final List<double[]> rectangles = new ArrayList<>();
+    // The runs of the previous row, sorted by start, as [start, end) columns
+    // and the row their rectangle began on.
+    private int[] openStart = new int[16];
+    private int[] openEnd = new int[16];
+    private int[] openTop = new int[16];
+    private int numOpen;
+    private int[] nextStart = new int[16];
+    private int[] nextEnd = new int[16];
+    private int[] nextTop = new int[16];
+    private int numNext;
+    // The next open run that could still match a run of the current row.
+    private int cursor;
+    private int row;
+
+    /**
+     * Adds a run of occupied cells to the current row. Runs must be added in
+     * increasing order and not overlap.
+     *
+     * @param start the first occupied column
+     * @param end   one past the last occupied column
+     */
+    void addRun(int start, int end) {
+        // Open runs starting before this one can't match anything later in
+        // the row.
+        while (this.cursor < this.numOpen && this.openStart[this.cursor] < start) {
+            close(this.cursor++);
+        }
+        int top = this.row;
+        if (this.cursor < this.numOpen && this.openStart[this.cursor] == start
+                && this.openEnd[this.cursor] == end) {
+            top = this.openTop[this.cursor++];
+        }
+
+        if (this.numNext == this.nextStart.length) {
+            int capacity = 2 * this.numNext;
+            this.nextStart = Arrays.copyOf(this.nextStart, capacity);
+            this.nextEnd = Arrays.copyOf(this.nextEnd, capacity);
+            this.nextTop = Arrays.copyOf(this.nextTop, capacity);
+        }
+        this.nextStart[this.numNext] = start;
+        this.nextEnd[this.numNext] = end;
+        this.nextTop[this.numNext] = top;
+        this.numNext++;
+    }
+
+    /**
+     * Finishes the current row and moves to the next.
+     */
+    void endRow() {
+        while (this.cursor < this.numOpen) {
+            close(this.cursor++);
+        }
+        int[] swap = this.openStart;
+        this.openStart = this.nextStart;
+        this.nextStart = swap;
+        swap = this.openEnd;
+        this.openEnd = this.nextEnd;
+        this.nextEnd = swap;
+        swap = this.openTop;
+        this.openTop = this.nextTop;
+        this.nextTop = swap;
+        this.numOpen = this.numNext;
+        this.numNext = 0;
+        this.cursor = 0;
+        this.row++;
+    }
+
+    /**
+     * Closes the runs still open after the last row, which must have been
+     * ended.
+     *
+     * @return the rectangles as {x, y, width, height} in cells
+     */
+    List<double[]> finish() {
+        for (int i = 0; i < this.numOpen; i++) {
+            close(i);
+        }
+        this.numOpen = 0;
+        return this.rectangles;
+    }
+
+    /**
+     * Emits the rectangle of an open run that the current row doesn't
+     * continue.
+     */
+    private void close(int i) {
+        this.rectangles.add(new double[] { this.openStart[i], this.openTop[i],
+                this.openEnd[i] - this.openStart[i], this.row - this.openTop[i] });
+    }
+}
@@ -0,0 +1,481 @@
+package robotgraphgen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Builds a roadmap one tile at a time and streams it into a RoadmapFile, for
+ * maps whose roadmap is too large to hold in memory.
+ *
+ * The map is cut into square tiles. Each tile draws its own Halton points,
+ * so the points of any tile can be regenerated from its index alone, and
+ * options.getNumVertices() sets the sampling density: that many points would
+ * be drawn across the whole map. Vertices are numbered tile by tile in row
+ * major order.
+ *
+ * Edges join each vertex to the first k in-range vertices it has valid edges
+ * to, closest first, and an edge is kept if either end chose the other. Unlike
+ * the greedy order a Graph connects in, that only depends on the vertices
+ * within r of each end, so a tile can find every edge of its own vertices,
+ * including those crossing into neighboring tiles, from the points within 2r
+ * of it. Both tiles of a crossing edge see the same points around it and agree
+ * on it without exchanging anything.
+ *
+ * Each tile's vertices and adjacency are written to a temporary file as soon
+ * as the tile is done, and the files are concatenated into the roadmap at the
+ * end. Peak memory depends on the tile size and parallelism rather than on
+ * the size of the map.
+ */
+public class TiledRoadmapBuilder {
+    // Spreads the scramble seeds of neighboring tiles apart.
+    private static final long TILE_SEED_STEP = 0x9E3779B97F4A7C15L;
+
+    private final Map map;
+    private final int k;
+    private final double r;
+    private final GraphOptions options;
+    private final double tileSize;
+    private final int columns;
+    private final int rows;
+    private final BuildParameters parameters;
+
+    /**
+     * @param map      the map to generate a roadmap over
+     * @param k        the maximum number of neighbors each vertex chooses
+     * @param r        the maximum distance between neighbors in pixels
+     * @param options  settings controlling how the roadmap is built; the
+     *                 densify budget and sampling other than UNIFORM aren't
+     *                 supported
+     * @param tileSize the side length of a tile in pixels, at least 2r
+     */
+    public TiledRoadmapBuilder(Map map, int k, double r, GraphOptions options, double tileSize) {
+        if (!(tileSize >= 2 * r) || tileSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Tile size must be positive and at least 2r: " + tileSize);
+        }
+        if (options.getDensifyBudget() > 0) {
+            throw new IllegalArgumentException("Densifying isn't supported for tiled builds");
+        }
+        if (options.getSampling() != GraphOptions.Sampling.UNIFORM) {
+            // Each tile's points must follow from its index alone.
+            throw new IllegalArgumentException("Tiled builds only sample uniformly");
+        }
+        this.map = map;
+        this.k = k;
+        this.r = r;
+        this.options = options;
+        this.tileSize = tileSize;
+        this.columns = Math.max(1, (int) Math.ceil(map.getWidth() / tileSize));
+        this.rows = Math.max(1, (int) Math.ceil(map.getHeight() / tileSize));
+        this.parameters = BuildParameters.of(map, k, r, options, tileSize);
+    }
+
+    public BuildParameters getParameters() {
+        return parameters;
+    }
+
+    public int numTiles() {
+        return this.columns * this.rows;
+    }
+
+    /**
+     * Builds the roadmap and writes it as a RoadmapFile.
+     *
+     * @param path the file to write, replacing any existing file
+     * @throws IOException if the roadmap or its temporary tile files can't be
+     *                     written
+     */
+    public void write(Path path) throws IOException {
+        Path directory = Files.createTempDirectory(
+                path.toAbsolutePath().getParent(), "tiles");
+        ForkJoinPool pool = this.options.getParallelism() > 1
+                ? new ForkJoinPool(this.options.getParallelism())
+                : null;
+        try {
+            int[] vertexCounts = new int[numTiles()];
+            forEachTile(pool, t -> vertexCounts[t] = freePoints(t).length / 2);
+
+            int[] firstVertex = new int[numTiles() + 1];
+            for (int t = 0; t < numTiles(); t++) {
+                long next = (long) firstVertex[t] + vertexCounts[t];
+                if (next > Integer.MAX_VALUE) {
+                    throw new IOException("Roadmap has too many vertices: " + next);
+                }
+                firstVertex[t + 1] = (int) next;
+            }
+
+            int[] edgeCounts = new int[numTiles()];
+            forEachTile(pool, t -> edgeCounts[t] = writeTile(t, firstVertex,
+                    directory.resolve(chunkName(t))));
+
+            assemble(path, directory, vertexCounts, edgeCounts);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            for (int t = 0; t < numTiles(); t++) {
+                Files.deleteIfExists(directory.resolve(chunkName(t)));
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private interface TileTask {
+        void run(int tile) throws IOException;
+    }
+
+    private void forEachTile(ForkJoinPool pool, TileTask task) throws IOException {
+        if (pool == null) {
+            for (int t = 0; t < numTiles(); t++) {
+                task.run(t);
+            }
+            return;
+        }
+        try {
+            pool.submit(() -> IntStream.range(0, numTiles())
+                    .parallel()
+                    .forEach(t -> {
+                        try {
+                            task.run(t);
+                        } catch (IOException e) {
+                            throw new TileException(e);
+                        }
+                    }))
+                    .join();
+        } catch (TileException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Carries an IOException out of a worker thread.
+    private static class TileException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TileException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * @return {x0, y0, x1, y1} of the tile, clipped to the map
+     */
+    private double[] tileBounds(int tile) {
+        int column = tile % this.columns;
+        int row = tile / this.columns;
+        double x0 = column * this.tileSize;
+        double y0 = row * this.tileSize;
+        return new double[] { x0, y0,
+                Math.min(x0 + this.tileSize, this.map.getWidth()),
+                Math.min(y0 + this.tileSize, this.map.getHeight()) };
+    }
+
+    /**
+     * Samples the tile at the roadmap's density and keeps the points outside
+     * obstacles. The result only depends on the tile, so neighboring tiles can
+     * regenerate it.
+     *
+     * @return the free points as {x0, y0, x1, y1, ...} in sampling order
+     */
+    private double[] freePoints(int tile) {
+        double[] bounds = tileBounds(tile);
+        double width = bounds[2] - bounds[0];
+        double height = bounds[3] - bounds[1];
+        long samples = Math.round(this.options.getNumVertices() * width * height
+                / (this.map.getWidth() * this.map.getHeight()));
+
+        HaltonSequence hs = this.options.isScrambled()
+                ? new HaltonSequence(this.options.getHaltonP(), this.options.getHaltonQ(),
+                        this.options.getScrambleSeed() + tile * TILE_SEED_STEP)
+                : new HaltonSequence(this.options.getHaltonP(), this.options.getHaltonQ());
+        double[] points = new double[16];
+        int found = 0;
+        double[] point = new double[2];
+        // Skip the first point, which is the tile's corner and lies on the
+        // boundary it shares with its neighbors.
+        for (long i = 1; i <= samples; i++) {
+            hs.valueAt(i, point);
+            double x = bounds[0] + point[0] * width;
+            double y = bounds[1] + point[1] * height;
+            if (!this.map.inObstacle(x, y)) {
+                if (2 * found + 2 > points.length) {
+                    points = Arrays.copyOf(points, 2 * points.length);
+                }
+                points[2 * found] = x;
+                points[2 * found + 1] = y;
+                found++;
+            }
+        }
+        return Arrays.copyOf(points, 2 * found);
+    }
+
+    /**
+     * Connects the tile's vertices and writes them to a chunk file holding
+     * their coordinates, degrees, neighbors and, if wanted, edge lengths, in
+     * the byte order of a RoadmapFile.
+     *
+     * @param firstVertex the index of each tile's first vertex
+     * @return the number of directed edges written
+     */
+    private int writeTile(int tile, int[] firstVertex, Path chunk) throws IOException {
+        double[] bounds = tileBounds(tile);
+        double margin = 2 * this.r;
+        int column = tile % this.columns;
+        int row = tile / this.columns;
+
+        // Gather the points within 2r of the tile. Tiles are at least 2r wide,
+        // so they all come from the tile and its eight neighbors. Visiting the
+        // tiles in index order keeps local indices in global order, so ties
+        // between equally distant candidates break the same way in every tile.
+        List<double[]> local = new ArrayList<>();
+        int[] globalIds = new int[16];
+        int ownStart = -1;
+        int ownCount = 0;
+        for (int ty = Math.max(0, row - 1); ty <= Math.min(this.rows - 1, row + 1); ty++) {
+            for (int tx = Math.max(0, column - 1); tx <= Math.min(this.columns - 1, column + 1); tx++) {
+                int other = ty * this.columns + tx;
+                double[] points = freePoints(other);
+                if (other == tile) {
+                    ownStart = local.size();
+                    ownCount = points.length / 2;
+                }
+                for (int j = 0; j < points.length / 2; j++) {
+                    double x = points[2 * j];
+                    double y = points[2 * j + 1];
+                    if (x >= bounds[0] - margin && x <= bounds[2] + margin
+                            && y >= bounds[1] - margin && y <= bounds[3] + margin) {
+                        if (local.size() == globalIds.length) {
+                            globalIds = Arrays.copyOf(globalIds, 2 * globalIds.length);
+                        }
+                        globalIds[local.size()] = firstVertex[other] + j;
+                        local.add(new double[] { x, y });
+                    }
+                }
+            }
+        }
+
+        KdTree index = new KdTree(local);
+        KdTree.Neighbors buffer = new KdTree.Neighbors(16);
+        int[][] chosen = new int[local.size()][];
+
+        int[] degrees = new int[ownCount];
+        int[] targets = new int[16];
+        int numEdges = 0;
+        for (int i = 0; i < ownCount; i++) {
+            int v = ownStart + i;
+            int[] choices = choose(v, local, index, buffer, chosen);
+            double[] coords = local.get(v);
+            index.withinRadius(coords[0], coords[1], this.r, v, buffer);
+            for (int j = 0; j < buffer.size(); j++) {
+                int u = buffer.get(j);
+                if (contains(choices, u) || contains(choose(u, local, index, null, chosen), v)) {
+                    if (numEdges == targets.length) {
+                        targets = Arrays.copyOf(targets, 2 * targets.length);
+                    }
+                    targets[numEdges++] = u;
+                    degrees[i]++;
+                }
+            }
+        }
+
+        writeChunk(chunk, local, globalIds, ownStart, degrees, targets, numEdges);
+        return numEdges;
+    }
+
+    /**
+     * @return the closest in-range vertices, at most k of them, that v has a
+     *         valid edge to, computing them on first use
+     * @param buffer a buffer for the query, or null if it's in use
+     */
+    private int[] choose(int v, List<double[]> local, KdTree index, KdTree.Neighbors buffer,
+            int[][] chosen) {
+        if (chosen[v] != null) {
+            return chosen[v];
+        }
+        if (buffer == null) {
+            buffer = new KdTree.Neighbors(16);
+        }
+        double[] coords = local.get(v);
+        index.withinRadius(coords[0], coords[1], this.r, v, buffer);
+        int[] valid = new int[Math.min(this.k, buffer.size())];
+        int found = 0;
+        for (int i = 0; i < buffer.size() && found < valid.length; i++) {
+            if (this.options.useLazyEdges() || Graph.edgeIsValid(coords,
+                    local.get(buffer.get(i)), this.map, this.options.getEdgeCheck())) {
+                valid[found++] = buffer.get(i);
+            }
+        }
+        chosen[v] = found == valid.length ? valid : Arrays.copyOf(valid, found);
+        return chosen[v];
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param targets local indices of the neighbors, translated to global
+     *                indices as they're written
+     */
+    private void writeChunk(Path chunk, List<double[]> local, int[] globalIds, int ownStart,
+            int[] degrees, int[] targets, int numEdges) throws IOException {
+        int n = degrees.length;
+        try (FileChannel channel = FileChannel.open(chunk, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer coordinates = allocate(16L * n);
+            for (int i = 0; i < n; i++) {
+                double[] coords = local.get(ownStart + i);
+                coordinates.putDouble(coords[0]).putDouble(coords[1]);
+            }
+            writeFully(channel, coordinates);
+
+            ByteBuffer degreeBytes = allocate(4L * n);
+            degreeBytes.asIntBuffer().put(degrees);
+            writeFully(channel, degreeBytes);
+
+            ByteBuffer targetBytes = allocate(4L * numEdges);
+            for (int e = 0; e < numEdges; e++) {
+                targetBytes.putInt(globalIds[targets[e]]);
+            }
+            writeFully(channel, targetBytes);
+
+            if (this.options.storeEdgeWeights()) {
+                ByteBuffer weights = allocate(4L * numEdges);
+                int e = 0;
+                for (int i = 0; i < n; i++) {
+                    double[] from = local.get(ownStart + i);
+                    for (int j = 0; j < degrees[i]; j++, e++) {
+                        double[] to = local.get(targets[e]);
+                        weights.putFloat((float) Math.hypot(to[0] - from[0], to[1] - from[1]));
+                    }
+                }
+                writeFully(channel, weights);
+            }
+        }
+    }
+
+    /**
+     * Concatenates the chunk files into a RoadmapFile, one section at a time.
+     */
+    private void assemble(Path path, Path directory, int[] vertexCounts, int[] edgeCounts)
+            throws IOException {
+        long n = 0;
+        long m = 0;
+        for (int t = 0; t < numTiles(); t++) {
+            n += vertexCounts[t];
+            m += edgeCounts[t];
+        }
+        boolean weights = this.options.storeEdgeWeights();
+        long size = m > Integer.MAX_VALUE ? Long.MAX_VALUE
+                : RoadmapFile.fileSize((int) n, (int) m, weights);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Roadmap too large for a single mapping: " + n
+                    + " vertices, " + m + " edges");
+        }
+
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = allocate(RoadmapFile.HEADER_SIZE);
+            RoadmapFile.putHeader(header, (int) n, (int) m, weights, this.parameters);
+            writeFully(out, header);
+
+            // Coordinates.
+            for (int t = 0; t < numTiles(); t++) {
+                copy(directory.resolve(chunkName(t)), 0, 16L * vertexCounts[t], out);
+            }
+
+            // Offsets, rebuilt from the degrees.
+            int offset = 0;
+            ByteBuffer first = allocate(4);
+            first.putInt(0, offset);
+            writeFully(out, first);
+            for (int t = 0; t < numTiles(); t++) {
+                try (FileChannel in = FileChannel.open(directory.resolve(chunkName(t)),
+                        StandardOpenOption.READ)) {
+                    ByteBuffer degrees = allocate(4L * vertexCounts[t]);
+                    readFully(in, degrees, 16L * vertexCounts[t]);
+                    IntBuffer offsets = degrees.asIntBuffer();
+                    for (int i = 0; i < vertexCounts[t]; i++) {
+                        offset += offsets.get(i);
+                        offsets.put(i, offset);
+                    }
+                    writeFully(out, degrees);
+                }
+            }
+
+            // Targets, then weights.
+            for (int t = 0; t < numTiles(); t++) {
+                copy(directory.resolve(chunkName(t)), 20L * vertexCounts[t],
+                        4L * edgeCounts[t], out);
+            }
+            if (weights) {
+                for (int t = 0; t < numTiles(); t++) {
+                    copy(directory.resolve(chunkName(t)),
+                            20L * vertexCounts[t] + 4L * edgeCounts[t],
+                            4L * edgeCounts[t], out);
+                }
+            }
+            out.force(false);
+        }
+    }
+
+    private static String chunkName(int tile) {
+        return "tile-" + tile + ".bin";
+    }
+
+    private static ByteBuffer allocate(long size) {
+        return ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void copy(Path chunk, long position, long length, FileChannel out)
+            throws IOException {
+        try (FileChannel in = FileChannel.open(chunk, StandardOpenOption.READ)) {
+            long copied = 0;
+            while (copied < length) {
+                long count = in.transferTo(position + copied, length - copied, out);
+                if (count <= 0) {
+                    throw new IOException(chunk + ": ended early");
+                }
+                copied += count;
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Tile file ended early");
+            }
+        }
+        buffer.rewind();
+    }
+}
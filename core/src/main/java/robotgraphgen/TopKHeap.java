@@ -0,0 +1,110 @@
+package robotgraphgen;
+
+/**
+ * Keeps the entries with the smallest keys out of a stream of (id, key)
+ * pairs, ties broken by the smaller id, in a fixed-size binary max-heap over
+ * primitive arrays. Offering an entry costs O(log limit) at worst and nothing
+ * once it's worse than everything kept, and the heap never allocates after
+ * it's created.
+ */
+final class TopKHeap {
+    private final int[] ids;
+    private final double[] keys;
+    private int limit;
+    private int size;
+
+    TopKHeap(int capacity) {
+        this.ids = new int[capacity];
+        this.keys = new double[capacity];
+    }
+
+    /**
+     * Empties the heap and sets how many entries it keeps.
+     */
+    void reset(int limit) {
+        if (limit > this.ids.length) {
+            throw new IllegalArgumentException(
+                    "Limit " + limit + " exceeds capacity " + this.ids.length);
+        }
+        this.limit = limit;
+        this.size = 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    void offer(int id, double key) {
+        if (this.size < this.limit) {
+            int i = this.size++;
+            // Sift up.
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!worse(id, key, this.ids[parent], this.keys[parent])) {
+                    break;
+                }
+                this.ids[i] = this.ids[parent];
+                this.keys[i] = this.keys[parent];
+                i = parent;
+            }
+            this.ids[i] = id;
+            this.keys[i] = key;
+        } else if (this.size > 0 && worse(this.ids[0], this.keys[0], id, key)) {
+            siftDown(0, this.size, id, key);
+        }
+    }
+
+    /**
+     * Sorts the kept entries best first, so id(0) is the closest. The heap
+     * must be reset before offering again.
+     */
+    void sort() {
+        for (int end = this.size - 1; end > 0; end--) {
+            int id = this.ids[end];
+            double key = this.keys[end];
+            this.ids[end] = this.ids[0];
+            this.keys[end] = this.keys[0];
+            siftDown(0, end, id, key);
+        }
+    }
+
+    int id(int i) {
+        return this.ids[i];
+    }
+
+    double key(int i) {
+        return this.keys[i];
+    }
+
+    /**
+     * Places (id, key) at position i of the heap ending at size, moving
+     * better children up as needed.
+     */
+    private void siftDown(int i, int size, int id, double key) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && worse(this.ids[child + 1], this.keys[child + 1],
+                    this.ids[child], this.keys[child])) {
+                child++;
+            }
+            if (!worse(this.ids[child], this.keys[child], id, key)) {
+                break;
+            }
+            this.ids[i] = this.ids[child];
+            this.keys[i] = this.keys[child];
+            i = child;
+        }
+        this.ids[i] = id;
+        this.keys[i] = key;
+    }
+
+    /**
+     * @return whether (id1, key1) sorts after (id2, key2)
+     */
+    private static boolean worse(int id1, double key1, int id2, double key2) {
+        return key1 > key2 || (key1 == key2 && id1 > id2);
+    }
+}
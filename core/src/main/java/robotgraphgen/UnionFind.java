@@ -0,0 +1,78 @@
+package robotgraphgen;
+
+import java.util.Arrays;
+
+/**
+ * Disjoint sets over int ids, with union by size and path halving, so each
+ * operation takes effectively constant time. Ids can be added as a graph
+ * grows.
+ */
+final class UnionFind {
+    private int[] parent;
+    private int[] size;
+    private int count;
+    private int sets;
+
+    UnionFind(int capacity) {
+        this.parent = new int[Math.max(1, capacity)];
+        this.size = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Adds a new id in a set of its own.
+     *
+     * @return the new id
+     */
+    int add() {
+        if (this.count == this.parent.length) {
+            this.parent = Arrays.copyOf(this.parent, 2 * this.count);
+            this.size = Arrays.copyOf(this.size, 2 * this.count);
+        }
+        int id = this.count++;
+        this.parent[id] = id;
+        this.size[id] = 1;
+        this.sets++;
+        return id;
+    }
+
+    int find(int id) {
+        while (this.parent[id] != id) {
+            this.parent[id] = this.parent[this.parent[id]];
+            id = this.parent[id];
+        }
+        return id;
+    }
+
+    /**
+     * Merges the sets containing a and b.
+     *
+     * @return whether they were in different sets
+     */
+    boolean union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return false;
+        }
+        if (this.size[rootA] < this.size[rootB]) {
+            int tmp = rootA;
+            rootA = rootB;
+            rootB = tmp;
+        }
+        this.parent[rootB] = rootA;
+        this.size[rootA] += this.size[rootB];
+        this.sets--;
+        return true;
+    }
+
+    /**
+     * @return the size of the set containing id
+     */
+    int sizeOf(int id) {
+        return this.size[find(id)];
+    }
+
+    int numSets() {
+        return this.sets;
+    }
+}
@@ -0,0 +1,172 @@
+package robotgraphgen;
+
+import java.util.Random;
+
+/**
+ * Credits to https://en.wikipedia.org/wiki/Van_der_Corput_sequence
+ * for inspiration.
+ *
+ * Elements can be generated in order with next(), or directly by index with
+ * valueAt(), which lets separate threads each work through their own range of
+ * the sequence. Base 2 is computed by reversing the bits of the index. Other
+ * bases look up several digits at a time in a precomputed table.
+ */
+
+public class VanDerCorput {
+    // Tables are sized to the largest power of the base not above this.
+    private static final int MAX_TABLE_SIZE = 4096;
+    // Digits beyond this many bits of precision don't affect a double.
+    private static final int PRECISION_BITS = 53;
+
+    private long index;
+    private int base;
+
+    // Radical inverses of every number below tableSize, which is base raised
+    // to the number of digits the table covers.
+    private double[] table;
+    private int tableSize;
+
+    // Digit permutations for scrambling, one per digit position, or null for
+    // the plain sequence.
+    private int[][] permutations;
+
+    public VanDerCorput(int base) {
+        if (base < 2) {
+            throw new IllegalArgumentException("Base must be at least 2");
+        }
+        this.index = 0;
+        this.base = base;
+        if (base != 2) {
+            buildTable();
+        }
+    }
+
+    /**
+     * Creates a scrambled sequence, where each digit position of every
+     * element is passed through its own random permutation of the digits.
+     * This is a simplified form of Owen scrambling: it keeps the sequence's
+     * stratification while breaking up the correlation between bases that
+     * makes plain Halton points line up in higher dimensions.
+     *
+     * @param base the base of the sequence
+     * @param seed the seed choosing the permutations
+     */
+    public VanDerCorput(int base, long seed) {
+        this(base);
+        Random random = new Random(seed);
+        int digits = (int) Math.ceil(PRECISION_BITS / (Math.log(base) / Math.log(2)));
+        this.permutations = new int[digits][base];
+        for (int[] permutation : this.permutations) {
+            for (int d = 0; d < base; d++) {
+                permutation[d] = d;
+            }
+            // Fisher-Yates shuffle.
+            for (int d = base - 1; d > 0; d--) {
+                int other = random.nextInt(d + 1);
+                int tmp = permutation[d];
+                permutation[d] = permutation[other];
+                permutation[other] = tmp;
+            }
+        }
+    }
+
+    public double next() {
+        return valueAt(this.index++);
+    }
+
+    /**
+     * @param index the position of the element in the sequence
+     * @return the index-th element of this sequence
+     */
+    public double valueAt(long index) {
+        if (this.permutations != null) {
+            return scrambledValueAt(index);
+        }
+        if (this.base == 2) {
+            return radicalInverse2(index);
+        }
+
+        double ret = 0.0;
+        double multiplier = 1.0;
+        long n = index;
+        while (n > 0) {
+            // Look up the next group of low digits at once.
+            ret += this.table[(int) (n % this.tableSize)] * multiplier;
+            multiplier /= this.tableSize;
+            n /= this.tableSize;
+        }
+        return ret;
+    }
+
+    /**
+     * Moves the sequence so the next call to next() returns the index-th
+     * element.
+     */
+    public void skipTo(long index) {
+        this.index = index;
+    }
+
+    public void reset() {
+        this.index = 0;
+    }
+
+    /**
+     * Computes an element of the sequence directly, without creating a
+     * generator.
+     *
+     * @param index the position of the element in the sequence
+     * @param base  the base of the sequence
+     * @return the index-th element of the Van der Corput sequence in base
+     */
+    public static double radicalInverse(long index, int base) {
+        if (base == 2) {
+            return radicalInverse2(index);
+        }
+
+        long n = index;
+        double ret = 0.0;
+        double multiplier = 1.0 / (double) base;
+
+        while (n > 0) {
+            ret += (n % base) * multiplier; // Get the 1s digit and apply multiplier
+            multiplier /= (double) base; // Decrease multiplier
+            n /= base; // Advance to the next digit
+        }
+
+        return ret;
+    }
+
+    /**
+     * In base 2 the radical inverse is the index's bits mirrored about the
+     * binary point, so reversing them gives the element directly.
+     */
+    private static double radicalInverse2(long index) {
+        return (Long.reverse(index) >>> (64 - PRECISION_BITS)) * 0x1.0p-53;
+    }
+
+    private void buildTable() {
+        int size = this.base;
+        while ((long) size * this.base <= MAX_TABLE_SIZE) {
+            size *= this.base;
+        }
+        this.tableSize = size;
+        this.table = new double[size];
+        for (int i = 0; i < size; i++) {
+            this.table[i] = radicalInverse(i, this.base);
+        }
+    }
+
+    private double scrambledValueAt(long index) {
+        double ret = 0.0;
+        double multiplier = 1.0 / (double) this.base;
+        long n = index;
+        // Every digit position is permuted, including the infinite run of
+        // leading zeros, so all positions up to full precision are visited.
+        for (int[] permutation : this.permutations) {
+            ret += permutation[(int) (n % this.base)] * multiplier;
+            multiplier /= (double) this.base;
+            n /= this.base;
+        }
+        return ret;
+    }
+}
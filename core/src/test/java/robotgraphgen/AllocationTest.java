@@ -0,0 +1,148 @@
+package robotgraphgen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the calls made for every sample, collision test and edge
+ * check allocate nothing once compiled, and that a path query allocates
+ * only the path it returns, by counting the bytes the test thread allocates
+ * around a warmed-up loop of them.
+ */
+class AllocationTest {
+    private static final int CALLS = 20000;
+    private static final int WARMUP_ROUNDS = 20;
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    // Results are summed here so the loops can't be optimized away.
+    private double sink;
+
+    @BeforeAll
+    static void enableAllocationCounting() {
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    void sequencesDontAllocate() {
+        HaltonSequence halton = new HaltonSequence(2, 3);
+        HaltonSequence scrambled = new HaltonSequence(2, 3, 42);
+        VanDerCorput vdc = new VanDerCorput(5);
+        double[] out = new double[2];
+        assertNoAllocation("HaltonSequence.nextInto", i -> {
+            halton.nextInto(out);
+            this.sink += out[0];
+        });
+        assertNoAllocation("HaltonSequence.valueAt", i -> {
+            halton.valueAt(i, out);
+            this.sink += out[1];
+        });
+        assertNoAllocation("scrambled HaltonSequence.valueAt", i -> {
+            scrambled.valueAt(i, out);
+            this.sink += out[1];
+        });
+        assertNoAllocation("VanDerCorput.valueAt", i -> this.sink += vdc.valueAt(i));
+    }
+
+    @Test
+    void collisionChecksDontAllocate() {
+        Map map = TestMaps.scattered(16);
+        assertNoAllocation("Map.inObstacle", i -> {
+            if (map.inObstacle(i % 997, i % 991)) {
+                this.sink++;
+            }
+        });
+        map.setUseGrid(false);
+        assertNoAllocation("Map.inObstacle without grid", i -> {
+            if (map.inObstacle(i % 997, i % 991)) {
+                this.sink++;
+            }
+        });
+        map.setUseGrid(true);
+        assertNoAllocation("Map.segmentBlocked", i -> {
+            if (map.segmentBlocked(i % 997, i % 991, (i * 7) % 1000, (i * 13) % 1000)) {
+                this.sink++;
+            }
+        });
+        map.rasterize(4);
+        assertNoAllocation("Map.inObstacle with bitmap", i -> {
+            if (map.inObstacle(i % 997, i % 991)) {
+                this.sink++;
+            }
+        });
+    }
+
+    @Test
+    void edgeChecksDontAllocate() {
+        Map map = TestMaps.scattered(17);
+        map.computeClearance(4);
+        double[] a = new double[2];
+        double[] b = new double[2];
+        for (GraphOptions.EdgeCheck check : GraphOptions.EdgeCheck.values()) {
+            Graph graph = new Graph(map, 4, 60, TestMaps.options(50).edgeCheck(check));
+            assertNoAllocation("Graph.edgeIsValid " + check, i -> {
+                a[0] = i % 997;
+                a[1] = i % 991;
+                b[0] = (i * 7) % 1000;
+                b[1] = (i * 13) % 1000;
+                if (graph.edgeIsValid(a, b, map)) {
+                    this.sink++;
+                }
+            });
+        }
+    }
+
+    @Test
+    void planAllocatesOnlyItsPath() {
+        Map map = TestMaps.scattered(18);
+        Graph graph = new Graph(map, 8, 80, TestMaps.options(2000));
+        PathPlanner planner = graph.planner(map);
+        RoadmapPath path = planner.plan(20, 20, 320, 260);
+        assertNotNull(path);
+        int points = path.numPoints();
+
+        // The bytes the returned path itself takes on this JVM.
+        long pathBytes = allocatedPerCall(i -> this.sink += new RoadmapPath(
+                new double[2 * points], new int[points], i).getLength());
+        long planBytes = allocatedPerCall(
+                i -> this.sink += planner.plan(20, 20, 320, 260).getLength());
+        assertEquals(pathBytes, planBytes, "plan allocated more than its path");
+    }
+
+    private interface Loop {
+        void call(long i);
+    }
+
+    private void assertNoAllocation(String name, Loop loop) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            run(loop);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        run(loop);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        assertEquals(0, allocated,
+                name + " allocated " + allocated + " bytes in " + CALLS + " calls");
+    }
+
+    private long allocatedPerCall(Loop loop) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            run(loop);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        run(loop);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        assertEquals(0, allocated % CALLS, "calls allocated different amounts");
+        return allocated / CALLS;
+    }
+
+    private static void run(Loop loop) {
+        for (long i = 0; i < CALLS; i++) {
+            loop.call(i);
+        }
+    }
+}
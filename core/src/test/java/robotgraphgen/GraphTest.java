@@ -0,0 +1,123 @@
+package robotgraphgen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class GraphTest {
+    private static final int K = 8;
+    private static final double R = 80;
+
+    @Test
+    void parallelBuildMatchesSequential() {
+        Map map = TestMaps.scattered(1);
+        for (boolean spatialIndex : new boolean[] { false, true }) {
+            Graph sequential = new Graph(map, K, R,
+                    TestMaps.options(2000).spatialIndex(spatialIndex));
+            Graph parallel = new Graph(map, K, R,
+                    TestMaps.options(2000).spatialIndex(spatialIndex).parallelism(4));
+            assertEquals(sequential.numVertices(), parallel.numVertices());
+            for (int v = 0; v < sequential.numVertices(); v++) {
+                assertArrayEquals(sequential.coordinatesOf(v), parallel.coordinatesOf(v));
+                assertEquals(sequential.neighborsOf(v), parallel.neighborsOf(v),
+                        "neighbors of " + v);
+            }
+        }
+    }
+
+    @Test
+    void repairAfterAddingObstacleMatchesRebuild() {
+        Map map = TestMaps.scattered(2);
+        Graph graph = new Graph(map, K, R, TestMaps.options(3000));
+        Set<List<Double>> before = vertexSet(graph);
+
+        double[] bounds = { 400, 400, 150, 120 };
+        map.addObstacle(bounds[0], bounds[1], bounds[2], bounds[3]);
+        graph.obstacleAdded(map, bounds);
+        Graph rebuilt = new Graph(map, K, R, TestMaps.options(3000));
+
+        // Exactly the vertices now blocked are gone.
+        Set<List<Double>> expected = new HashSet<>();
+        for (List<Double> p : before) {
+            if (!map.inObstacle(p.get(0), p.get(1))) {
+                expected.add(p);
+            }
+        }
+        assertEquals(expected, vertexSet(graph));
+        assertTrue(graph.isRepaired());
+        assertMaximal(graph, map);
+        assertMaximal(rebuilt, map);
+    }
+
+    @Test
+    void repairAfterRemovingObstacleMatchesRebuild() {
+        Map map = TestMaps.scattered(3);
+        Graph graph = new Graph(map, K, R, TestMaps.options(3000));
+        double[] bounds = map.removeObstacle(0);
+        graph.obstacleRemoved(map, bounds);
+        Graph rebuilt = new Graph(map, K, R, TestMaps.options(3000));
+
+        assertMaximal(graph, map);
+        assertMaximal(rebuilt, map);
+        // The freed area is resampled at about the density of a rebuild.
+        int repairedCount = countInside(graph, bounds);
+        int rebuiltCount = countInside(rebuilt, bounds);
+        assertTrue(Math.abs(repairedCount - rebuiltCount) <= Math.max(3, rebuiltCount / 4),
+                repairedCount + " vertices in freed area, rebuild has " + rebuiltCount);
+    }
+
+    /**
+     * Checks what a fresh build guarantees: every vertex is free, every edge
+     * is valid and within r, edges go both ways, and a vertex with fewer
+     * than k neighbors is joined to every vertex in range it has a valid
+     * edge to.
+     */
+    private static void assertMaximal(Graph graph, Map map) {
+        for (int v = 0; v < graph.numVertices(); v++) {
+            double[] p = graph.coordinatesOf(v);
+            assertFalse(map.inObstacle(p[0], p[1]), "vertex " + v + " is blocked");
+            List<Integer> neighbors = graph.neighborsOf(v);
+            for (int u : neighbors) {
+                double[] q = graph.coordinatesOf(u);
+                assertTrue(graph.distance(p, q) <= R);
+                assertFalse(map.segmentBlocked(p, q), "edge " + v + "-" + u + " is blocked");
+                assertTrue(graph.neighborsOf(u).contains(v), "edge " + v + "-" + u + " is one way");
+            }
+            if (neighbors.size() >= K) {
+                continue;
+            }
+            for (int u = 0; u < graph.numVertices(); u++) {
+                double[] q = graph.coordinatesOf(u);
+                if (u != v && graph.distance(p, q) <= R && !map.segmentBlocked(p, q)) {
+                    assertTrue(neighbors.contains(u),
+                            "vertex " + v + " has " + neighbors.size() + " neighbors but not " + u);
+                }
+            }
+        }
+    }
+
+    private static Set<List<Double>> vertexSet(Graph graph) {
+        Set<List<Double>> vertices = new HashSet<>();
+        for (int v = 0; v < graph.numVertices(); v++) {
+            double[] p = graph.coordinatesOf(v);
+            vertices.add(List.of(p[0], p[1]));
+        }
+        return vertices;
+    }
+
+    private static int countInside(Graph graph, double[] bounds) {
+        int count = 0;
+        for (int v = 0; v < graph.numVertices(); v++) {
+            double[] p = graph.coordinatesOf(v);
+            if (bounds[0] < p[0] && p[0] < bounds[0] + bounds[2]
+                    && bounds[1] < p[1] && p[1] < bounds[1] + bounds[3]) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
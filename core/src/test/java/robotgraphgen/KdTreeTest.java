@@ -0,0 +1,108 @@
+package robotgraphgen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class KdTreeTest {
+    @Test
+    void radiusQueryMatchesBruteForce() {
+        for (List<double[]> points : List.of(randomPoints(), latticePoints())) {
+            KdTree tree = new KdTree(points);
+            Random random = new Random(2);
+            for (int i = 0; i < 500; i++) {
+                int exclude = random.nextInt(points.size());
+                double[] q = random.nextBoolean()
+                        ? points.get(exclude)
+                        : new double[] { random.nextDouble() * 100, random.nextDouble() * 100 };
+                double r = random.nextDouble() * 15;
+                assertArrayEquals(bruteForce(points, q, points.size(), r, exclude),
+                        tree.withinRadius(q[0], q[1], r, exclude));
+            }
+        }
+    }
+
+    @Test
+    void nearestQueryMatchesBruteForce() {
+        for (List<double[]> points : List.of(randomPoints(), latticePoints())) {
+            KdTree tree = new KdTree(points);
+            Random random = new Random(3);
+            for (int i = 0; i < 500; i++) {
+                int exclude = random.nextInt(points.size());
+                double[] q = points.get(exclude);
+                int k = 1 + random.nextInt(12);
+                double r = random.nextDouble() * 15;
+                assertArrayEquals(bruteForce(points, q, k, r, exclude),
+                        tree.nearest(q[0], q[1], k, r, exclude));
+            }
+        }
+    }
+
+    @Test
+    void graphBuildIsTheSameWithAndWithoutIndex() {
+        Map map = TestMaps.scattered(8);
+        Graph bruteForce = new Graph(map, 8, 60, TestMaps.options(2000));
+        Graph indexed = new Graph(map, 8, 60, TestMaps.options(2000).spatialIndex(true));
+        assertEquals(bruteForce.numVertices(), indexed.numVertices());
+        for (int v = 0; v < bruteForce.numVertices(); v++) {
+            assertEquals(bruteForce.neighborsOf(v), indexed.neighborsOf(v), "neighbors of " + v);
+        }
+    }
+
+    /**
+     * @return the indices of at most k points within r of q, closest first
+     *         with ties broken by index
+     */
+    private static int[] bruteForce(List<double[]> points, double[] q, int k, double r,
+            int exclude) {
+        Integer[] order = new Integer[points.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byDistance = Double.compare(distanceSquared(points.get(a), q),
+                    distanceSquared(points.get(b), q));
+            return byDistance != 0 ? byDistance : Integer.compare(a, b);
+        });
+        return Arrays.stream(order)
+                .filter(i -> i != exclude && distanceSquared(points.get(i), q) <= r * r)
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static double distanceSquared(double[] p, double[] q) {
+        double dx = p[0] - q[0];
+        double dy = p[1] - q[1];
+        return dx * dx + dy * dy;
+    }
+
+    private static List<double[]> randomPoints() {
+        Random random = new Random(1);
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            points.add(new double[] { random.nextDouble() * 100, random.nextDouble() * 100 });
+        }
+        return points;
+    }
+
+    /**
+     * @return a shuffled lattice, where most neighbors tie on distance
+     */
+    private static List<double[]> latticePoints() {
+        List<double[]> points = new ArrayList<>();
+        for (int x = 0; x < 40; x++) {
+            for (int y = 0; y < 40; y++) {
+                points.add(new double[] { x * 2.5, y * 2.5 });
+            }
+        }
+        Collections.shuffle(points, new Random(4));
+        return points;
+    }
+}
@@ -0,0 +1,89 @@
+package robotgraphgen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LandmarkOracleTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void picksDistinctLandmarks() {
+        Map map = TestMaps.scattered(14);
+        Graph graph = new Graph(map, 8, 80, TestMaps.options(2000));
+        LandmarkOracle oracle = LandmarkOracle.build(graph.lazyEdges(map), 16);
+        assertEquals(16, oracle.numLandmarks());
+        Set<Integer> landmarks = new HashSet<>();
+        for (int l = 0; l < oracle.numLandmarks(); l++) {
+            assertTrue(landmarks.add(oracle.landmark(l)),
+                    "landmark " + oracle.landmark(l) + " repeated");
+        }
+    }
+
+    @Test
+    void stopsWhenTheComponentRunsOut() {
+        // A triangle and a separate edge, so the largest component has three
+        // vertices.
+        CompactGraph graph = new CompactGraph(
+                new double[] { 0, 0, 1, 0, 0, 1, 5, 5, 6, 5 },
+                new int[] { 0, 2, 4, 6, 7, 8 },
+                new int[] { 1, 2, 0, 2, 0, 1, 4, 3 },
+                null);
+        LandmarkOracle oracle = LandmarkOracle.build(edges(graph), 8);
+        assertEquals(3, oracle.numLandmarks());
+        Set<Integer> landmarks = new HashSet<>();
+        for (int l = 0; l < oracle.numLandmarks(); l++) {
+            landmarks.add(oracle.landmark(l));
+            assertEquals(0f, oracle.distance(l, oracle.landmark(l)));
+        }
+        assertEquals(Set.of(0, 1, 2), landmarks);
+        assertEquals(Math.sqrt(2), oracle.lowerBound(1, 2), 1e-5);
+        assertEquals(Double.POSITIVE_INFINITY, oracle.lowerBound(0, 3));
+    }
+
+    @Test
+    void roundTripsAndRejectsOtherRoadmaps() throws IOException {
+        CompactGraph path = new CompactGraph(
+                new double[] { 0, 0, 1, 0, 2, 0 },
+                new int[] { 0, 1, 3, 4 },
+                new int[] { 1, 0, 2, 1 },
+                null);
+        // The same counts, with vertex 1 at the end of the path instead.
+        CompactGraph other = new CompactGraph(
+                new double[] { 0, 0, 1, 0, 2, 0 },
+                new int[] { 0, 1, 2, 4 },
+                new int[] { 2, 2, 0, 1 },
+                null);
+        LandmarkOracle oracle = LandmarkOracle.build(edges(path), 2);
+        assertTrue(oracle.matches(path));
+        assertFalse(oracle.matches(other));
+
+        Path file = this.dir.resolve("oracle.landmarks");
+        oracle.write(file);
+        LandmarkOracle loaded = LandmarkOracle.load(file, path);
+        assertEquals(oracle.numLandmarks(), loaded.numLandmarks());
+        for (int l = 0; l < oracle.numLandmarks(); l++) {
+            assertEquals(oracle.landmark(l), loaded.landmark(l));
+            for (int v = 0; v < 3; v++) {
+                assertEquals(oracle.distance(l, v), loaded.distance(l, v));
+            }
+        }
+        assertThrows(IOException.class, () -> LandmarkOracle.load(file, other));
+
+        BuildParameters parameters = BuildParameters.of(new Map(10, 10), 2, 3, new GraphOptions());
+        assertThrows(IllegalArgumentException.class,
+                () -> new PathPlanner(other, new Map(10, 10), parameters, oracle));
+    }
+
+    private static LazyEdges edges(CompactGraph graph) {
+        return new LazyEdges(graph, new Map(10, 10),
+                BuildParameters.of(new Map(10, 10), 2, 3, new GraphOptions()));
+    }
+}
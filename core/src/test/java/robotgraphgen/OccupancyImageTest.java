@@ -0,0 +1,205 @@
+package robotgraphgen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OccupancyImageTest {
+    private static final int WIDTH = 97;
+    private static final int HEIGHT = 61;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void pngDecoderMatchesImageIo() throws IOException {
+        int[] types = {
+                BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_USHORT_GRAY,
+                BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_INDEXED,
+                BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB };
+        Random random = new Random(15);
+        for (int type : types) {
+            for (boolean interlaced : new boolean[] { false, true }) {
+                Path path = this.dir.resolve("image-" + type + "-" + interlaced + ".png");
+                writePng(blobs(type, random), path, interlaced);
+                assertMatchesImageIo(path);
+            }
+        }
+    }
+
+    @Test
+    void truecolorColorKeyIsFree() throws IOException {
+        for (int bitDepth : new int[] { 8, 16 }) {
+            // Black, the key color and white in stripes. Only black is
+            // occupied; the key is dark but transparent.
+            int[] key = { 10, 20, 30 };
+            int step = bitDepth / 8;
+            byte[] raw = new byte[HEIGHT * (1 + WIDTH * 3 * step)];
+            int i = 0;
+            for (int y = 0; y < HEIGHT; y++) {
+                raw[i++] = 0;
+                for (int x = 0; x < WIDTH; x++) {
+                    for (int c = 0; c < 3; c++) {
+                        int value = x % 3 == 0 ? 0 : x % 3 == 1 ? key[c] : 255;
+                        if (step == 2) {
+                            // The low byte must match too.
+                            raw[i++] = (byte) value;
+                            raw[i++] = (byte) (x % 3 == 1 ? 0 : value);
+                        } else {
+                            raw[i++] = (byte) value;
+                        }
+                    }
+                }
+            }
+            byte[] transparency = new byte[6];
+            for (int c = 0; c < 3; c++) {
+                transparency[2 * c] = (byte) (step == 2 ? key[c] : 0);
+                transparency[2 * c + 1] = (byte) (step == 2 ? 0 : key[c]);
+            }
+            Path path = this.dir.resolve("key" + bitDepth + ".png");
+            Files.write(path, rawPng(bitDepth, 2, raw, transparency));
+
+            Map map = OccupancyImage.read(path);
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    assertEquals(x % 3 == 0, map.inObstacle(x + 0.5, y + 0.5),
+                            bitDepth + "-bit pixel " + x + ", " + y);
+                }
+            }
+            assertMatchesImageIo(path);
+        }
+    }
+
+    private static void assertMatchesImageIo(Path path) throws IOException {
+        BufferedImage reference = ImageIO.read(path.toFile());
+        Map map = OccupancyImage.read(path);
+        assertEquals(WIDTH, map.getWidth());
+        assertEquals(HEIGHT, map.getHeight());
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(occupied(reference, x, y), map.inObstacle(x + 0.5, y + 0.5),
+                        path.getFileName() + " pixel " + x + ", " + y);
+            }
+        }
+    }
+
+    /**
+     * @return whether ImageIO's decoding of a pixel is dark and opaque, read
+     *         from the raw samples for gray images
+     */
+    private static boolean occupied(BufferedImage image, int x, int y) {
+        ColorModel model = image.getColorModel();
+        if (!(model instanceof IndexColorModel)
+                && model.getColorSpace().getType() == ColorSpace.TYPE_GRAY) {
+            int bits = model.getComponentSize(0);
+            return image.getRaster().getSample(x, y, 0) * 255 / ((1 << bits) - 1)
+                    < OccupancyImage.DEFAULT_THRESHOLD;
+        }
+        int c = image.getRGB(x, y);
+        int gray = (299 * (c >> 16 & 0xff) + 587 * (c >> 8 & 0xff) + 114 * (c & 0xff)) / 1000;
+        return c >>> 24 >= 128 && gray < OccupancyImage.DEFAULT_THRESHOLD;
+    }
+
+    private static BufferedImage blobs(int type, Random random) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        for (int i = 0; i < 30; i++) {
+            int alpha = type == BufferedImage.TYPE_INT_ARGB ? random.nextInt(256) : 255;
+            g.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256),
+                    alpha));
+            int x = random.nextInt(WIDTH);
+            int y = random.nextInt(HEIGHT);
+            int w = random.nextInt(WIDTH / 3);
+            int h = random.nextInt(HEIGHT / 3);
+            if (random.nextBoolean()) {
+                g.fillRect(x, y, w, h);
+            } else {
+                g.fillOval(x, y, w, h);
+            }
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static void writePng(BufferedImage image, Path path, boolean interlaced)
+            throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (interlaced) {
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        }
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(path.toFile())) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * @param raw unfiltered scanlines, each led by its filter type byte
+     * @return a PNG file holding the scanlines and a tRNS chunk
+     */
+    private static byte[] rawPng(int bitDepth, int colorType, byte[] raw, byte[] transparency)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(0x89504E470D0A1A0AL);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream h = new DataOutputStream(header);
+        h.writeInt(WIDTH);
+        h.writeInt(HEIGHT);
+        h.writeByte(bitDepth);
+        h.writeByte(colorType);
+        h.writeByte(0);
+        h.writeByte(0);
+        h.writeByte(0);
+        chunk(out, "IHDR", header.toByteArray());
+        chunk(out, "tRNS", transparency);
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(data)) {
+            deflate.write(raw);
+        }
+        chunk(out, "IDAT", data.toByteArray());
+        chunk(out, "IEND", new byte[0]);
+        return bytes.toByteArray();
+    }
+
+    private static void chunk(DataOutputStream out, String type, byte[] data) throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data);
+        out.writeInt(data.length);
+        out.write(name);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+}
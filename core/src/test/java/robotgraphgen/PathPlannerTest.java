@@ -0,0 +1,168 @@
+package robotgraphgen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PathPlannerTest {
+    private static final int K = 8;
+    private static final double R = 80;
+
+    @Test
+    void aStarMatchesDijkstra() {
+        Map map = TestMaps.scattered(4);
+        Graph graph = new Graph(map, K, R, TestMaps.options(3000));
+        assertMatchesDijkstra(graph.planner(map), map, graph.getBuildParameters());
+    }
+
+    @Test
+    void landmarkHeuristicMatchesDijkstra() {
+        Map map = TestMaps.scattered(5);
+        Graph graph = new Graph(map, K, R, TestMaps.options(3000));
+        LandmarkOracle oracle = LandmarkOracle.build(graph.lazyEdges(map), 8);
+        assertMatchesDijkstra(graph.planner(map, oracle), map, graph.getBuildParameters());
+    }
+
+    @Test
+    void lazyEdgesMatchDijkstra() {
+        Map map = TestMaps.scattered(6);
+        Graph graph = new Graph(map, K, R, TestMaps.options(3000).lazyEdges(true));
+        assertMatchesDijkstra(graph.planner(map), map, graph.getBuildParameters());
+    }
+
+    @Test
+    void unboundedKJoinsEveryVertexInRange() {
+        Map map = TestMaps.scattered(7);
+        Graph graph = new Graph(map, Integer.MAX_VALUE, R,
+                TestMaps.options(2000).spatialIndex(false));
+        PathPlanner planner = graph.planner(map);
+        assertMatchesDijkstra(planner, map, graph.getBuildParameters());
+
+        // Two queries from one start take the batch's shared search.
+        double[] queries = { 100, 100, 900, 900, 100, 100, 900, 100 };
+        BatchResult batch = planner.planBatch(queries, 1);
+        for (int i = 0; i < batch.size(); i++) {
+            RoadmapPath path = planner.plan(queries[4 * i], queries[4 * i + 1],
+                    queries[4 * i + 2], queries[4 * i + 3]);
+            if (path == null) {
+                assertNull(batch.getPath(i), "query " + i);
+            } else {
+                assertEquals(path.getLength(), batch.getPath(i).getLength(), 1e-9, "query " + i);
+            }
+        }
+    }
+
+    private static void assertMatchesDijkstra(PathPlanner planner, Map map,
+            BuildParameters parameters) {
+        Random random = new Random(7);
+        int found = 0;
+        for (int i = 0; i < 200; i++) {
+            double[] start = { random.nextDouble() * 1000, random.nextDouble() * 1000 };
+            double[] goal = { random.nextDouble() * 1000, random.nextDouble() * 1000 };
+            RoadmapPath path = planner.plan(start[0], start[1], goal[0], goal[1]);
+            double expected = dijkstra(planner.getGraph(), map, parameters, start, goal);
+            if (Double.isInfinite(expected)) {
+                assertNull(path, "query " + i);
+                continue;
+            }
+            assertNotNull(path, "query " + i);
+            assertEquals(expected, path.getLength(), 1e-6 * expected, "query " + i);
+            found++;
+        }
+        assertTrue(found > 100, "only " + found + " queries found paths");
+    }
+
+    /**
+     * Finds the shortest path length from start to goal by a plain Dijkstra
+     * search over the roadmap, with the ends joined the way the planner
+     * joins them.
+     */
+    private static double dijkstra(CompactGraph graph, Map map, BuildParameters parameters,
+            double[] start, double[] goal) {
+        if (map.inObstacle(start[0], start[1]) || map.inObstacle(goal[0], goal[1])) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int n = graph.numVertices();
+        double[] startCosts = linkCosts(graph, map, parameters, start);
+        double[] goalCosts = linkCosts(graph, map, parameters, goal);
+        double best = Double.POSITIVE_INFINITY;
+        double straight = distance(start[0], start[1], goal[0], goal[1]);
+        if (straight <= parameters.getR() && !map.segmentBlocked(start, goal)) {
+            best = straight;
+        }
+
+        double[] cost = startCosts.clone();
+        boolean[] done = new boolean[n];
+        PriorityQueue<double[]> open = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        for (int v = 0; v < n; v++) {
+            if (cost[v] < Double.POSITIVE_INFINITY) {
+                open.add(new double[] { cost[v], v });
+            }
+        }
+        while (!open.isEmpty()) {
+            double[] top = open.poll();
+            int v = (int) top[1];
+            if (done[v] || top[0] > cost[v]) {
+                continue;
+            }
+            done[v] = true;
+            best = Math.min(best, cost[v] + goalCosts[v]);
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                int u = graph.target(e);
+                double[] p = { graph.x(v), graph.y(v) };
+                double[] q = { graph.x(u), graph.y(u) };
+                if (parameters.isLazyEdges() && map.segmentBlocked(p, q)) {
+                    continue;
+                }
+                double c = cost[v] + distance(p[0], p[1], q[0], q[1]);
+                if (c < cost[u]) {
+                    cost[u] = c;
+                    open.add(new double[] { c, u });
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the cost of joining point to each vertex, infinite for those it
+     *         isn't joined to: the k closest within r it has valid edges to
+     */
+    private static double[] linkCosts(CompactGraph graph, Map map, BuildParameters parameters,
+            double[] point) {
+        int n = graph.numVertices();
+        Integer[] order = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byDistance = Double.compare(
+                    distance(point[0], point[1], graph.x(a), graph.y(a)),
+                    distance(point[0], point[1], graph.x(b), graph.y(b)));
+            return byDistance != 0 ? byDistance : Integer.compare(a, b);
+        });
+        double[] costs = new double[n];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        int linked = 0;
+        for (int i = 0; i < n && linked < parameters.getK(); i++) {
+            int v = order[i];
+            double d = distance(point[0], point[1], graph.x(v), graph.y(v));
+            if (d > parameters.getR()) {
+                break;
+            }
+            if (!map.segmentBlocked(point, new double[] { graph.x(v), graph.y(v) })) {
+                costs[v] = d;
+                linked++;
+            }
+        }
+        return costs;
+    }
+
+    private static double distance(double x1, double y1, double x2, double y2) {
+        return Math.hypot(x2 - x1, y2 - y1);
+    }
+}
@@ -0,0 +1,88 @@
+package robotgraphgen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RoadmapCacheTest {
+    private static final long LIMIT = 1L << 30;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void hitsInMemoryAndOnDisk() {
+        Map map = TestMaps.scattered(10);
+        GraphOptions options = TestMaps.options(1000);
+        RoadmapCache cache = new RoadmapCache(LIMIT, this.dir, LIMIT);
+        CompactGraph built = cache.get(map, 6, 70, options);
+        assertSame(built, cache.get(map, 6, 70, options));
+
+        RoadmapCache reopened = new RoadmapCache(LIMIT, this.dir, LIMIT);
+        CompactGraph loaded = reopened.get(map, 6, 70, options);
+        RoadmapFileTest.assertSameGraph(built, loaded);
+        RoadmapFileTest.assertSameGraph(new Graph(map, 6, 70, options).compact(), loaded);
+
+        assertEquals(1, cache.stats().getMemoryHits());
+        assertEquals(1, cache.stats().getMisses());
+        assertEquals(1, reopened.stats().getDiskHits());
+        assertEquals(0, reopened.stats().getMisses());
+    }
+
+    @Test
+    void edgeWeightsAreAMiss() {
+        Map map = TestMaps.scattered(11);
+        RoadmapCache cache = new RoadmapCache(LIMIT, this.dir, LIMIT);
+        CompactGraph plain = cache.get(map, 6, 70, TestMaps.options(1000));
+        CompactGraph weighted = cache.get(map, 6, 70, TestMaps.options(1000).edgeWeights(true));
+        assertFalse(plain.hasWeights());
+        assertTrue(weighted.hasWeights());
+        assertEquals(2, cache.stats().getMisses());
+
+        RoadmapCache reopened = new RoadmapCache(LIMIT, this.dir, LIMIT);
+        assertTrue(reopened.get(map, 6, 70, TestMaps.options(1000).edgeWeights(true)).hasWeights());
+        assertFalse(reopened.get(map, 6, 70, TestMaps.options(1000)).hasWeights());
+        assertEquals(2, reopened.stats().getDiskHits());
+    }
+
+    @Test
+    void rasterizingTheMapIsAMiss() {
+        Map map = TestMaps.scattered(12);
+        GraphOptions options = TestMaps.options(1000);
+        RoadmapCache cache = new RoadmapCache(LIMIT, this.dir, LIMIT);
+        cache.get(map, 6, 70, options);
+        map.rasterize(8);
+        CompactGraph rasterized = cache.get(map, 6, 70, options);
+        assertEquals(2, cache.stats().getMisses());
+        RoadmapFileTest.assertSameGraph(new Graph(map, 6, 70, options).compact(), rasterized);
+
+        map.rasterize(4);
+        cache.get(map, 6, 70, options);
+        assertEquals(3, cache.stats().getMisses());
+        map.clearRaster();
+        cache.get(map, 6, 70, options);
+        assertEquals(3, cache.stats().getMisses());
+        assertEquals(1, cache.stats().getMemoryHits());
+    }
+
+    @Test
+    void buildsQuietly() {
+        Map map = TestMaps.scattered(13);
+        GraphOptions options = TestMaps.options(300).reportUnderConnected(true);
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured));
+        try {
+            new RoadmapCache(LIMIT).get(map, 20, 30, options);
+        } finally {
+            System.setOut(out);
+        }
+        assertEquals(0, captured.size());
+        assertTrue(options.reportUnderConnected());
+    }
+}
@@ -0,0 +1,98 @@
+package robotgraphgen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RoadmapFileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsGraphAndParameters() throws IOException {
+        Map map = TestMaps.scattered(9);
+        for (boolean weights : new boolean[] { false, true }) {
+            GraphOptions options = TestMaps.options(1500)
+                    .edgeWeights(weights)
+                    .scrambleSeed(42)
+                    .densifyBudget(20);
+            Graph graph = new Graph(map, 6, 70, options);
+            Path path = this.dir.resolve("roadmap-" + weights + ".bin");
+            RoadmapFile.write(path, graph.compact(), graph.getBuildParameters());
+
+            RoadmapFile loaded = RoadmapFile.load(path);
+            assertEquals(graph.getBuildParameters(), loaded.getParameters());
+            assertSameGraph(graph.compact(), loaded.getGraph());
+        }
+    }
+
+    @Test
+    void rejectsDecreasingOffsets() throws IOException {
+        Path path = writeSmall();
+        // offsets[2] of the three-vertex graph, after the coordinates.
+        int offset = RoadmapFile.HEADER_SIZE + 8 * 2 * 3 + 4 * 2;
+        putInt(path, offset, 0);
+        IOException e = assertThrows(IOException.class, () -> RoadmapFile.load(path));
+        assertTrue(e.getMessage().contains("offsets"), e.getMessage());
+    }
+
+    @Test
+    void rejectsOutOfRangeTargets() throws IOException {
+        Path path = writeSmall();
+        int offset = RoadmapFile.HEADER_SIZE + 8 * 2 * 3 + 4 * 4;
+        putInt(path, offset, 3);
+        assertThrows(IOException.class, () -> RoadmapFile.load(path));
+        putInt(path, offset, -1);
+        assertThrows(IOException.class, () -> RoadmapFile.load(path));
+    }
+
+    /**
+     * Writes a path graph 0 - 1 - 2.
+     */
+    private Path writeSmall() throws IOException {
+        CompactGraph graph = new CompactGraph(
+                new double[] { 0, 0, 1, 0, 2, 0 },
+                new int[] { 0, 1, 3, 4 },
+                new int[] { 1, 0, 2, 1 },
+                null);
+        Path path = this.dir.resolve("small.bin");
+        RoadmapFile.write(path, graph,
+                BuildParameters.of(new Map(10, 10), 2, 1.5, new GraphOptions()));
+        RoadmapFile.load(path);
+        return path;
+    }
+
+    private static void putInt(Path path, int position, int value) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(0, value);
+            channel.write(buffer, position);
+        }
+    }
+
+    static void assertSameGraph(CompactGraph expected, CompactGraph actual) {
+        assertEquals(expected.numVertices(), actual.numVertices());
+        assertEquals(expected.numEdges(), actual.numEdges());
+        assertEquals(expected.hasWeights(), actual.hasWeights());
+        for (int v = 0; v < expected.numVertices(); v++) {
+            assertEquals(expected.x(v), actual.x(v));
+            assertEquals(expected.y(v), actual.y(v));
+            assertEquals(expected.edgeStart(v), actual.edgeStart(v));
+            assertEquals(expected.edgeEnd(v), actual.edgeEnd(v));
+        }
+        for (int e = 0; e < expected.numEdges(); e++) {
+            assertEquals(expected.target(e), actual.target(e));
+            if (expected.hasWeights()) {
+                assertEquals(expected.weight(e), actual.weight(e));
+            }
+        }
+    }
+}
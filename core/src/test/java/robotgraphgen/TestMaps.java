@@ -0,0 +1,38 @@
+package robotgraphgen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Maps and graph comparisons shared by the tests.
+ */
+final class TestMaps {
+    private TestMaps() {
+    }
+
+    /**
+     * @return a 1000x1000 map with a few dozen scattered rectangles, the same
+     *         for every seed
+     */
+    static Map scattered(long seed) {
+        Random random = new Random(seed);
+        List<double[]> obstacles = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            obstacles.add(new double[] {
+                    random.nextDouble() * 900, random.nextDouble() * 900,
+                    10 + random.nextDouble() * 90, 10 + random.nextDouble() * 90 });
+        }
+        return new Map(1000, 1000, obstacles);
+    }
+
+    /**
+     * @return options for a quiet build of n vertices with exact edge checks
+     */
+    static GraphOptions options(int n) {
+        return new GraphOptions()
+                .numVertices(n)
+                .reportUnderConnected(false)
+                .edgeCheck(GraphOptions.EdgeCheck.EXACT);
+    }
+}
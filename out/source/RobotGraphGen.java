@@ -1,68 +0,0 @@
-/* autogenerated by Processing revision 1293 on 2024-05-12 */
-import processing.core.*;
-import processing.data.*;
-import processing.event.*;
-import processing.opengl.*;
-
-import java.util.HashMap;
-import java.util.ArrayList;
-import java.io.File;
-import java.io.BufferedReader;
-import java.io.PrintWriter;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.IOException;
-
-public class RobotGraphGen extends PApplet {
-
-HaltonSequence hs;
-VanDerCorput vdc;
-Map map;
-Graph graph;
-PImage background;
-public static final int K = 3;
-public static final double R = 80;
-
-public void setup () {
-    /* size commented out by preprocessor */;
-    background(255);
-    hs = new HaltonSequence(2, 3);
-    vdc = new VanDerCorput(2);
-    map = new Map(width, height);
-    graph = new Graph(map, K, R);
-    map.render(this.g);
-    graph.render(this.g);
-    save("background.png");
-    background = loadImage("background.png");
-}
-
-public void mouseMoved() {
-    System.out.println(mouseX + " " + mouseY);
-}
-
-public void draw() {
-    // double[] point = hs.next();
-    // float x = (float)point[0] * width;
-    // float y = (float)point[1] * height;
-    // strokeWeight(8);
-    // stroke(x / width * 100 + 155, y / height * 100 + 155, 255);
-    // point(x, y);
-    image(background, 0, 0);
-    stroke(255, 0, 0);
-    strokeWeight(2);
-    noFill();
-    circle(mouseX, mouseY, 2f * (float) R);
-}
-
-
-  public void settings() { size(500, 500); }
-
-  static public void main(String[] passedArgs) {
-    String[] appletArgs = new String[] { "RobotGraphGen" };
-    if (passedArgs != null) {
-      PApplet.main(concat(appletArgs, passedArgs));
-    } else {
-      PApplet.main(appletArgs);
-    }
-  }
-}
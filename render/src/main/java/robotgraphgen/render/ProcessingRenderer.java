@@ -0,0 +1,58 @@
+package robotgraphgen.render;
+
+import processing.core.PGraphics;
+import robotgraphgen.CompactGraph;
+import robotgraphgen.Graph;
+import robotgraphgen.Map;
+
+/**
+ * Draws maps and roadmaps with Processing. This is the only code that
+ * depends on Processing, so the core library can run headless.
+ */
+public class ProcessingRenderer {
+    private ProcessingRenderer() {
+    }
+
+    public static void render(PGraphics g, Map map) {
+        g.fill(0);
+        g.noStroke();
+        for (int i = 0; i < map.numObstacles(); i++) {
+            double[] o = map.getObstacle(i);
+            g.rect(
+                    (float) o[0],
+                    (float) o[1],
+                    (float) o[2],
+                    (float) o[3]);
+        }
+    }
+
+    public static void render(PGraphics g, Graph graph) {
+        render(g, graph.compact());
+    }
+
+    /**
+     * Draws each undirected edge once, then the vertices on top. For a
+     * roadmap drawn every frame, RoadmapView avoids redrawing it at all.
+     */
+    public static void render(PGraphics g, CompactGraph cg) {
+        g.strokeWeight(1);
+        g.stroke(90, 200, 255);
+        for (int i = 0; i < cg.numVertices(); i++) {
+            for (int e = cg.edgeStart(i); e < cg.edgeEnd(i); e++) {
+                int n = cg.target(e);
+                if (i < n) {
+                    g.line((float) cg.x(i),
+                            (float) cg.y(i),
+                            (float) cg.x(n),
+                            (float) cg.y(n));
+                }
+            }
+        }
+
+        g.stroke(0);
+        g.strokeWeight(5);
+        for (int i = 0; i < cg.numVertices(); i++) {
+            g.point((float) cg.x(i), (float) cg.y(i));
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package robotgraphgen.render;
+
+import java.util.Arrays;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+import processing.core.PGraphics;
+import processing.core.PShape;
+import robotgraphgen.CompactGraph;
+import robotgraphgen.Map;
+
+/**
+ * Draws a map and its roadmap from retained shapes instead of issuing every
+ * primitive each frame.
+ *
+ * Obstacles, edges and vertices are separate layers. Each undirected edge is
+ * emitted once, and each layer sets its style once rather than per primitive.
+ * Edges and vertices are bucketed into square cells at least as wide as the
+ * longest edge, with a shape per cell, so a change to part of the roadmap only
+ * rebuilds the cells around it. The vertices are kept sorted by cell, so that
+ * rebuild doesn't walk the rest of the roadmap, and the cells grow on the next
+ * full rebuild if a change adds a longer edge. With an OpenGL renderer the
+ * shapes live in vertex buffers on the GPU.
+ *
+ * The layers are drawn into an offscreen image, which draw() copies to the
+ * screen. After an update only the changed region of the image is redrawn, so
+ * a frame costs one image copy however large the roadmap is.
+ */
+public class RoadmapView {
+    private static final int BACKGROUND = 255;
+    private static final float VERTEX_WEIGHT = 5;
+    private static final float EDGE_WEIGHT = 1;
+
+    private final PGraphics cache;
+    private double cellSize;
+    private int columns;
+    private int rows;
+
+    private Map map;
+    private CompactGraph graph;
+    private PShape obstacles;
+    // Per cell, the edges whose first endpoint (by x, then y) is in the cell,
+    // and the vertices in the cell; null if there are none.
+    private PShape[] edges;
+    private PShape[] vertices;
+    // The vertices sorted by cell: those in cell c are cellVertices[i] for
+    // cellStart[c] <= i < cellStart[c + 1]. Null until the current graph's
+    // vertices have been sorted.
+    private int[] cellStart;
+    private int[] cellVertices;
+
+    private boolean fullyDirty;
+    // The union of the regions changed since the last draw, as
+    // {x0, y0, x1, y1}, or null if there are none.
+    private double[] dirty;
+
+    /**
+     * @param applet the sketch, which creates the offscreen image with its own
+     *               renderer
+     * @param map    the map to draw
+     * @param graph  the roadmap to draw on top of the map
+     */
+    public RoadmapView(PApplet applet, Map map, CompactGraph graph) {
+        this.map = map;
+        this.graph = graph;
+        int width = (int) Math.ceil(map.getWidth());
+        int height = (int) Math.ceil(map.getHeight());
+        this.cache = applet.createGraphics(width, height, applet.sketchRenderer());
+        layout(0);
+        invalidate();
+    }
+
+    /**
+     * Divides the map into cells at least as wide as the given edge length,
+     * which means an edge no longer than that never reaches past the cells
+     * next to its first endpoint's.
+     */
+    private void layout(double longest) {
+        this.cellSize = Math.max(longest, Math.max(this.map.getWidth(), this.map.getHeight()) / 64);
+        this.columns = Math.max(1, (int) Math.ceil(this.map.getWidth() / this.cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(this.map.getHeight() / this.cellSize));
+        this.edges = new PShape[this.columns * this.rows];
+        this.vertices = new PShape[this.columns * this.rows];
+        this.cellStart = null;
+    }
+
+    /**
+     * Marks everything as changed, so the next draw rebuilds every layer.
+     */
+    public void invalidate() {
+        this.fullyDirty = true;
+        this.dirty = null;
+    }
+
+    /**
+     * Replaces the map and roadmap after a local change, such as a Graph
+     * repairing itself around an obstacle. Only the cells near the change are
+     * rebuilt and only that part of the image is redrawn.
+     *
+     * @param map    the map after the change
+     * @param graph  the roadmap after the change; its vertices may be
+     *               renumbered
+     * @param bounds {x, y, width, height} of a region containing every vertex
+     *               or obstacle that was added or removed and an endpoint of
+     *               every edge that was added or removed. For a Graph
+     *               repaired around an obstacle that's the obstacle's bounds
+     *               grown by r.
+     */
+    public void update(Map map, CompactGraph graph, double[] bounds) {
+        if (graph != this.graph) {
+            this.cellStart = null;
+        }
+        this.map = map;
+        this.graph = graph;
+        if (this.fullyDirty) {
+            return;
+        }
+        double[] region = { bounds[0], bounds[1], bounds[0] + bounds[2], bounds[1] + bounds[3] };
+        if (this.dirty == null) {
+            this.dirty = region;
+        } else {
+            this.dirty[0] = Math.min(this.dirty[0], region[0]);
+            this.dirty[1] = Math.min(this.dirty[1], region[1]);
+            this.dirty[2] = Math.max(this.dirty[2], region[2]);
+            this.dirty[3] = Math.max(this.dirty[3], region[3]);
+        }
+    }
+
+    /**
+     * Brings the offscreen image up to date and draws it at the origin.
+     */
+    public void draw(PGraphics g) {
+        refresh();
+        g.image(this.cache, 0, 0);
+    }
+
+    private void refresh() {
+        // Shapes take their colors from the image's settings, which are only
+        // set up once it has begun drawing.
+        if (!this.fullyDirty && this.dirty != null) {
+            double[] region = this.dirty;
+            this.dirty = null;
+            this.cache.beginDraw();
+            this.fullyDirty = !refreshRegion(region);
+            this.cache.endDraw();
+        }
+        if (this.fullyDirty) {
+            // Grow the cells if the roadmap has an edge longer than they are
+            // wide. A full rebuild walks every edge anyway.
+            double longest = longestEdge(this.graph);
+            if (longest > this.cellSize) {
+                layout(longest);
+            }
+            this.cache.beginDraw();
+            this.obstacles = obstacleShape();
+            rebuildCells(0, 0, this.columns - 1, this.rows - 1);
+            this.cache.background(BACKGROUND);
+            drawCells(0, 0, this.columns - 1, this.rows - 1);
+            this.cache.endDraw();
+            this.fullyDirty = false;
+        }
+    }
+
+    /**
+     * Rebuilds the cells around a changed region and redraws that part of
+     * the image.
+     *
+     * @return false, having drawn nothing, if a changed edge is longer than
+     *         the cells are wide
+     */
+    private boolean refreshRegion(double[] region) {
+        // An edge that changed has an endpoint in the region, so its first
+        // endpoint is within one cell of it, and its pixels are within the
+        // longest edge of it, as long as it's no longer than the cells.
+        if (!rebuildCells(column(region[0] - this.cellSize), row(region[1] - this.cellSize),
+                column(region[2] + this.cellSize), row(region[3] + this.cellSize))) {
+            return false;
+        }
+        this.obstacles = obstacleShape();
+
+        // Strokes spill past the geometry by half their width.
+        double pad = this.cellSize + VERTEX_WEIGHT;
+        float x0 = (float) Math.max(0, region[0] - pad);
+        float y0 = (float) Math.max(0, region[1] - pad);
+        float x1 = (float) Math.min(this.cache.width, region[2] + pad);
+        float y1 = (float) Math.min(this.cache.height, region[3] + pad);
+        this.cache.clip(x0, y0, x1 - x0, y1 - y0);
+        this.cache.noStroke();
+        this.cache.fill(BACKGROUND);
+        this.cache.rect(x0, y0, x1 - x0, y1 - y0);
+        // Edges from cells one further out can cross into the clip.
+        drawCells(column(x0 - this.cellSize), row(y0 - this.cellSize),
+                column(x1 + this.cellSize), row(y1 + this.cellSize));
+        this.cache.noClip();
+        return true;
+    }
+
+    private void drawCells(int c0, int r0, int c1, int r1) {
+        this.cache.shape(this.obstacles);
+        for (int row = r0; row <= r1; row++) {
+            for (int column = c0; column <= c1; column++) {
+                PShape shape = this.edges[row * this.columns + column];
+                if (shape != null) {
+                    this.cache.shape(shape);
+                }
+            }
+        }
+        for (int row = r0; row <= r1; row++) {
+            for (int column = c0; column <= c1; column++) {
+                PShape shape = this.vertices[row * this.columns + column];
+                if (shape != null) {
+                    this.cache.shape(shape);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the edge and vertex shapes of the cells in the given range,
+     * inclusive, visiting only the vertices in those cells.
+     *
+     * @return whether every edge of those vertices is at most as long as the
+     *         cells are wide; if one isn't, the cells no longer bound the
+     *         edges
+     */
+    private boolean rebuildCells(int c0, int r0, int c1, int r1) {
+        if (this.cellStart == null) {
+            sortVertices();
+        }
+        CompactGraph g = this.graph;
+        double bound = this.cellSize * this.cellSize;
+        boolean bounded = true;
+        for (int row = r0; row <= r1; row++) {
+            for (int column = c0; column <= c1; column++) {
+                int cell = row * this.columns + column;
+                int first = this.cellStart[cell];
+                int last = this.cellStart[cell + 1];
+                PShape cellEdges = null;
+                PShape cellVertices = first == last ? null : beginVertices();
+                for (int i = first; i < last; i++) {
+                    int v = this.cellVertices[i];
+                    double vx = g.x(v);
+                    double vy = g.y(v);
+                    cellVertices.vertex((float) vx, (float) vy);
+                    for (int e = g.edgeStart(v); e < g.edgeEnd(v); e++) {
+                        int u = g.target(e);
+                        double dx = g.x(u) - vx;
+                        double dy = g.y(u) - vy;
+                        if (dx * dx + dy * dy > bound) {
+                            bounded = false;
+                        }
+                        if (firstEndpoint(v, u)) {
+                            if (cellEdges == null) {
+                                cellEdges = beginEdges();
+                            }
+                            cellEdges.vertex((float) vx, (float) vy);
+                            cellEdges.vertex((float) g.x(u), (float) g.y(u));
+                        }
+                    }
+                }
+                if (cellEdges != null) {
+                    cellEdges.endShape();
+                }
+                if (cellVertices != null) {
+                    cellVertices.endShape();
+                }
+                this.edges[cell] = cellEdges;
+                this.vertices[cell] = cellVertices;
+            }
+        }
+        return bounded;
+    }
+
+    /**
+     * Sorts the vertices by cell, keeping them in index order within each.
+     */
+    private void sortVertices() {
+        CompactGraph g = this.graph;
+        int[] start = new int[this.vertices.length + 1];
+        for (int v = 0; v < g.numVertices(); v++) {
+            start[cellOf(g.x(v), g.y(v)) + 1]++;
+        }
+        for (int cell = 0; cell < this.vertices.length; cell++) {
+            start[cell + 1] += start[cell];
+        }
+        int[] next = Arrays.copyOf(start, this.vertices.length);
+        int[] sorted = new int[g.numVertices()];
+        for (int v = 0; v < g.numVertices(); v++) {
+            sorted[next[cellOf(g.x(v), g.y(v))]++] = v;
+        }
+        this.cellStart = start;
+        this.cellVertices = sorted;
+    }
+
+    private PShape beginEdges() {
+        PShape shape = this.cache.createShape();
+        shape.beginShape(PConstants.LINES);
+        shape.noFill();
+        shape.stroke(90, 200, 255);
+        shape.strokeWeight(EDGE_WEIGHT);
+        return shape;
+    }
+
+    private PShape beginVertices() {
+        PShape shape = this.cache.createShape();
+        shape.beginShape(PConstants.POINTS);
+        shape.stroke(0);
+        shape.strokeWeight(VERTEX_WEIGHT);
+        return shape;
+    }
+
+    private PShape obstacleShape() {
+        PShape shape = this.cache.createShape();
+        shape.beginShape(PConstants.QUADS);
+        shape.noStroke();
+        shape.fill(0);
+        for (int i = 0; i < this.map.numObstacles(); i++) {
+            double[] o = this.map.getObstacle(i);
+            float x0 = (float) o[0];
+            float y0 = (float) o[1];
+            float x1 = (float) (o[0] + o[2]);
+            float y1 = (float) (o[1] + o[3]);
+            shape.vertex(x0, y0);
+            shape.vertex(x1, y0);
+            shape.vertex(x1, y1);
+            shape.vertex(x0, y1);
+        }
+        shape.endShape();
+        return shape;
+    }
+
+    /**
+     * @return whether the edge between v and u is stored with v, which is the
+     *         endpoint that comes first by x, then y, then index. Only the
+     *         order of coincident vertices depends on their numbering, and
+     *         they share a cell anyway.
+     */
+    private boolean firstEndpoint(int v, int u) {
+        double vx = this.graph.x(v);
+        double ux = this.graph.x(u);
+        if (vx != ux) {
+            return vx < ux;
+        }
+        double vy = this.graph.y(v);
+        double uy = this.graph.y(u);
+        return vy != uy ? vy < uy : v < u;
+    }
+
+    private int cellOf(double x, double y) {
+        return row(y) * this.columns + column(x);
+    }
+
+    private int column(double x) {
+        return Math.min(this.columns - 1, Math.max(0, (int) Math.floor(x / this.cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.min(this.rows - 1, Math.max(0, (int) Math.floor(y / this.cellSize)));
+    }
+
+    /**
+     * @return the length of the longest edge, rounded up so that its square
+     *         is at least the edge's squared length as rebuildCells computes it
+     */
+    private static double longestEdge(CompactGraph graph) {
+        double longest = 0;
+        for (int v = 0; v < graph.numVertices(); v++) {
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                int u = graph.target(e);
+                double dx = graph.x(u) - graph.x(v);
+                double dy = graph.y(u) - graph.y(v);
+                longest = Math.max(longest, dx * dx + dy * dy);
+            }
+        }
+        return longest == 0 ? 0 : Math.nextUp(Math.sqrt(longest));
+    }
+}